@@ -0,0 +1,84 @@
+package net.fishbulb.jcod.bench;
+
+import com.google.common.base.Supplier;
+import net.fishbulb.jcod.fov.BatchFOV;
+import net.fishbulb.jcod.fov.FOVSolver;
+import net.fishbulb.jcod.fov.LightGrid;
+import net.fishbulb.jcod.fov.ResistanceGrid;
+import net.fishbulb.jcod.fov.ShadowFOV;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A turn's worth of NPC FOVs through BatchFOV, by worker count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchFovBenchmark {
+
+    private static final int SIZE = 256;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"200"})
+    public int viewers;
+
+    private float[][] map;
+    private ResistanceGrid grid;
+    private List<BatchFOV.Viewer> viewerList;
+    private BatchFOV batch;
+
+    @Setup
+    public void setup() {
+        map = Maps.scattered(SIZE, SIZE, 0.2f, 42);
+        grid = ResistanceGrid.of(map);
+
+        Random rng = new Random(7);
+        viewerList = new ArrayList<>();
+        for (int i = 0; i < viewers; i++) {
+            viewerList.add(new BatchFOV.Viewer(rng.nextInt(SIZE), rng.nextInt(SIZE), 8 + rng.nextInt(8)));
+        }
+
+        batch = new BatchFOV(new Supplier<FOVSolver>() {
+            @Override
+            public FOVSolver get() {
+                return new ShadowFOV();
+            }
+        }, threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        batch.shutdown();
+    }
+
+    @Benchmark
+    public List<float[][]> arrays() {
+        return batch.calculateFOV(map, viewerList);
+    }
+
+    @Benchmark
+    public List<LightGrid> grids() {
+        return batch.calculateFOV(grid, viewerList);
+    }
+}
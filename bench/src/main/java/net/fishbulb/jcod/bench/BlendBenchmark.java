@@ -0,0 +1,73 @@
+package net.fishbulb.jcod.bench;
+
+import com.badlogic.gdx.graphics.Color;
+import net.fishbulb.jcod.util.BlendMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888;
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888ToColor;
+
+/**
+ * A full-screen tint of a 200x100 console's backgrounds, like a night or damage flash overlay, done through the Color
+ * blend functions and through the packed region blend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlendBenchmark {
+
+    private static final int CELLS = 200 * 100;
+
+    @Param({"Multiply", "AlphaLerp"})
+    public String mode;
+
+    private BlendMode blend;
+    private int[] backgrounds;
+    private final Color tint = new Color(0.2f, 0.3f, 0.6f, 0.5f);
+    private int tintBits;
+
+    private final Color dest = new Color();
+
+    @Setup
+    public void setup() {
+        blend = BlendMode.valueOf(mode);
+        tintBits = rgba8888(tint);
+        Random rng = new Random(3);
+        backgrounds = new int[CELLS];
+        for (int i = 0; i < CELLS; i++) {
+            backgrounds[i] = rng.nextInt() | 0xff;
+        }
+    }
+
+    @Benchmark
+    public int[] colors() {
+        for (int i = 0; i < CELLS; i++) {
+            rgba8888ToColor(backgrounds[i], dest);
+            blend.blend(tint, dest, dest);
+            backgrounds[i] = rgba8888(dest);
+        }
+        return backgrounds;
+    }
+
+    @Benchmark
+    public int[] packed() {
+        blend.blendRegion(tintBits, backgrounds, 0, CELLS);
+        return backgrounds;
+    }
+}
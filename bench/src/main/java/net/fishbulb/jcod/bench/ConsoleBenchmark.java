@@ -0,0 +1,169 @@
+package net.fishbulb.jcod.bench;
+
+import com.badlogic.gdx.graphics.Color;
+import net.fishbulb.jcod.Console;
+import net.fishbulb.jcod.display.TileDisplay;
+import net.fishbulb.jcod.util.BlendMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.fishbulb.jcod.Console.Alignment;
+
+/**
+ * Console drawing operations.  The console is attached to a TileDisplay with no tileset and no background tile, so
+ * flush exercises the console side of the handoff without needing a GL context.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsoleBenchmark {
+
+    private static final String LINE = "The quick brown fox jumps over the lazy dog.";
+
+    // printed in turn with LINE, and different in every character, so each print really changes every cell it covers
+    // instead of hitting the console's unchanged-cell check
+    private static final String OTHER_LINE = shift(LINE);
+
+    private static final String PARAGRAPH = "You are in a maze of twisty little passages, all alike. " +
+            Console.getColorControlString(Console.COLCTRL_1) + "A lamp" + Console.getColorControlString(Console.COLCTRL_STOP) +
+            " flickers on the wall, and somewhere to the east you hear the " +
+            Console.getRGBAColorControlString(Console.COLCTRL_FORE_RGB, 255, 64, 0, 255) + "crackle of a fire" +
+            Console.getColorControlString(Console.COLCTRL_STOP) + ". The passage continues north and south.";
+
+    // PARAGRAPH with every letter changed, so it wraps the same way but rewrites the cells holding letters
+    private static final String OTHER_PARAGRAPH = shiftLetters(PARAGRAPH);
+
+    @Param({"80x50", "200x100"})
+    public String size;
+
+    private int width;
+    private int height;
+
+    private Console console;
+
+    // blitted in turn, with a different char and background in every cell
+    private Console offscreen;
+    private Console otherOffscreen;
+
+    private boolean other;
+
+    @Setup
+    public void setup() {
+        String[] dims = size.split("x");
+        width = Integer.parseInt(dims[0]);
+        height = Integer.parseInt(dims[1]);
+
+        console = new Console(width, height, null, new TileDisplay(width, height, 1, 1, null));
+        console.setColorControl(Console.COLCTRL_1, Color.YELLOW, Color.BLACK);
+
+        offscreen = offscreen(Color.BLUE, 0);
+        otherOffscreen = offscreen(Color.RED, 1);
+    }
+
+    private Console offscreen(Color background, int shift) {
+        Console offscreen = new Console(width / 2, height / 2);
+        offscreen.setDefaultForeground(Color.WHITE);
+        offscreen.setDefaultBackground(background);
+        offscreen.clear();
+        for (int y = 0; y < offscreen.getHeight(); y++) {
+            for (int x = 0; x < offscreen.getWidth(); x++) {
+                offscreen.putChar(x, y, (char) ('a' + ((x + y + shift) % 26)));
+            }
+        }
+        return offscreen;
+    }
+
+    private static String shift(String s) {
+        StringBuilder shifted = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            shifted.append((char) (s.charAt(i) + 1));
+        }
+        return shifted.toString();
+    }
+
+    private static String shiftLetters(String s) {
+        StringBuilder shifted = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c >= 'a') && (c <= 'z')) c = (char) ('a' + ((c - 'a' + 1) % 26));
+            else if ((c >= 'A') && (c <= 'Z')) c = (char) ('A' + ((c - 'A' + 1) % 26));
+            shifted.append(c);
+        }
+        return shifted.toString();
+    }
+
+    private String nextLine() {
+        other = !other;
+        return other ? OTHER_LINE : LINE;
+    }
+
+    private String nextParagraph() {
+        other = !other;
+        return other ? OTHER_PARAGRAPH : PARAGRAPH;
+    }
+
+    // alternating sources keeps the opaque blit from copying unchanged cells, and the alpha blit from settling
+    private Console nextSource() {
+        other = !other;
+        return other ? otherOffscreen : offscreen;
+    }
+
+    @Benchmark
+    public Console putString() {
+        console.print(1, 1, nextLine());
+        return console;
+    }
+
+    @Benchmark
+    public int printRectEx() {
+        return console.printRectEx(1, 1, 40, 10, BlendMode.Set, Alignment.Left, nextParagraph());
+    }
+
+    @Benchmark
+    public Console blit() {
+        nextSource().blit(0, 0, 0, 0, console, width / 4, height / 4, 1f, 1f);
+        return console;
+    }
+
+    @Benchmark
+    public Console blitAlpha() {
+        nextSource().blit(0, 0, 0, 0, console, width / 4, height / 4, 1f, 0.5f);
+        return console;
+    }
+
+    @Benchmark
+    public Console clear() {
+        console.clear();
+        return console;
+    }
+
+    /** A full redraw, as after changing the tileset */
+    @Benchmark
+    public Console flushAll() {
+        console.setDirty(0, 0, width, height);
+        console.flush();
+        return console;
+    }
+
+    /** A typical frame that only rewrites a status line, so the console's own dirty tracking decides what's flushed */
+    @Benchmark
+    public Console flushStatusLine() {
+        console.print(0, height - 1, nextLine());
+        console.flush();
+        return console;
+    }
+}
@@ -0,0 +1,76 @@
+package net.fishbulb.jcod.bench;
+
+import net.fishbulb.jcod.fov.EliasFOV;
+import net.fishbulb.jcod.fov.FOVSolver;
+import net.fishbulb.jcod.fov.RayCastingFOV;
+import net.fishbulb.jcod.fov.RippleFOV;
+import net.fishbulb.jcod.fov.ShadowFOV;
+import net.fishbulb.jcod.fov.SpreadFOV;
+import net.fishbulb.jcod.fov.TranslucenceWrapperFOV;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every FOVSolver from the middle of a scattered map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FovBenchmark {
+
+    @Param({"Shadow", "Ripple", "Spread", "Translucence", "RayCasting", "Elias"})
+    public String solver;
+
+    @Param({"64", "256"})
+    public int size;
+
+    @Param({"8", "20"})
+    public int radius;
+
+    private float[][] map;
+    private FOVSolver fov;
+
+    @Setup
+    public void setup() {
+        map = Maps.scattered(size, size, 0.2f, 42);
+        fov = create(solver);
+    }
+
+    static FOVSolver create(String name) {
+        switch (name) {
+            case "Shadow":
+                return new ShadowFOV();
+            case "Ripple":
+                return new RippleFOV();
+            case "Spread":
+                return new SpreadFOV();
+            case "Translucence":
+                return new TranslucenceWrapperFOV();
+            case "RayCasting":
+                return new RayCastingFOV();
+            case "Elias":
+                return new EliasFOV();
+            default:
+                throw new IllegalArgumentException("Unknown solver " + name);
+        }
+    }
+
+    @Benchmark
+    public float[][] calculateFOV() {
+        return fov.calculateFOV(map, size / 2, size / 2, radius);
+    }
+}
@@ -0,0 +1,80 @@
+package net.fishbulb.jcod.bench;
+
+import net.fishbulb.jcod.fov.BasicRadiusStrategy;
+import net.fishbulb.jcod.fov.BresenhamLOS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BresenhamLOS from the middle of the map to a fixed set of random targets, the way an AI turn would check which
+ * monsters can see the player.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LosBenchmark {
+
+    private static final int SIZE = 128;
+
+    @Param({"8", "30"})
+    public int radius;
+
+    @Param({"256"})
+    public int targets;
+
+    private float[][] map;
+    private int[] targetX;
+    private int[] targetY;
+    private BresenhamLOS los;
+
+    @Setup
+    public void setup() {
+        map = Maps.scattered(SIZE, SIZE, 0.2f, 42);
+        los = new BresenhamLOS();
+
+        Random rng = new Random(7);
+        targetX = new int[targets];
+        targetY = new int[targets];
+        for (int i = 0; i < targets; i++) {
+            targetX[i] = SIZE / 2 + rng.nextInt(radius * 2 + 1) - radius;
+            targetY[i] = SIZE / 2 + rng.nextInt(radius * 2 + 1) - radius;
+        }
+    }
+
+    @Benchmark
+    public int isReachable() {
+        int origin = SIZE / 2;
+        int visible = 0;
+        for (int i = 0; i < targets; i++) {
+            if (los.isReachable(map, origin, origin, targetX[i], targetY[i])) visible++;
+        }
+        return visible;
+    }
+
+    @Benchmark
+    public int isReachableCircle() {
+        int origin = SIZE / 2;
+        float decay = 1f / radius;
+        int visible = 0;
+        for (int i = 0; i < targets; i++) {
+            if (los.isReachable(map, origin, origin, targetX[i], targetY[i], 1f, decay, BasicRadiusStrategy.CIRCLE))
+                visible++;
+        }
+        return visible;
+    }
+}
@@ -0,0 +1,33 @@
+package net.fishbulb.jcod.bench;
+
+import java.util.Random;
+
+/**
+ * Seeded test maps, so every benchmark run sees the same terrain.
+ */
+public final class Maps {
+
+    private Maps() {
+    }
+
+    /**
+     * A resistance map of open floor with the given fraction of walls (resistance 1) and a smaller fraction of
+     * translucent cells such as foliage or glass.  The center cell is always open so it can be used as an origin.
+     */
+    public static float[][] scattered(int width, int height, float walls, long seed) {
+        Random rng = new Random(seed);
+        float[][] map = new float[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                float roll = rng.nextFloat();
+                if (roll < walls) {
+                    map[x][y] = 1f;
+                } else if (roll < walls * 1.5f) {
+                    map[x][y] = 0.3f;
+                }
+            }
+        }
+        map[width / 2][height / 2] = 0f;
+        return map;
+    }
+}
@@ -0,0 +1,87 @@
+package net.fishbulb.jcod.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import toxi.math.noise.PerlinNoise;
+import toxi.math.noise.SimplexNoise;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Noise sampled over an 80x50 grid, the size of a full-screen console, as the noise demo does every frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseBenchmark {
+
+    private static final int WIDTH = 80;
+    private static final int HEIGHT = 50;
+    private static final float SCALE = 0.1f;
+
+    private PerlinNoise perlin;
+    private float time;
+
+    @Setup
+    public void setup() {
+        perlin = new PerlinNoise();
+        perlin.noiseSeed(42);
+    }
+
+    @Benchmark
+    public float perlin2d() {
+        float sum = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                sum += perlin.noise(x * SCALE, y * SCALE);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float perlin3d() {
+        time += SCALE;
+        float sum = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                sum += perlin.noise(x * SCALE, y * SCALE, time);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double simplex2d() {
+        double sum = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                sum += SimplexNoise.noise(x * SCALE, y * SCALE);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double simplex3d() {
+        time += SCALE;
+        double sum = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                sum += SimplexNoise.noise(x * SCALE, y * SCALE, time);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,177 @@
+package net.fishbulb.jcod;
+
+import com.badlogic.gdx.graphics.Color;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JCOD extension: Stacks consoles as layers over a root console, such as a map with UI panels and tooltips above it.
+ * <p/>
+ * Layers are drawn bottom to top onto the root's default character and colors, each blitted at its offset with its
+ * own alpha and its console's key color.  compose() only redraws the root cells that could have changed since the
+ * last call: cells a layer changed through the console API, and the old and new areas of layers that moved, changed
+ * alpha or key color, or were added, removed or hidden.  A layer that didn't change costs nothing.
+ * <p/>
+ * The compositor reads and then forgets each layer console's dirty tracking, so layer consoles shouldn't also be
+ * flushed to a display.  Anything drawn directly on the root is overwritten wherever the layers are redrawn.
+ */
+public class Compositor {
+
+    @Getter
+    private final Console root;
+
+    // layers are composed here a row span at a time, then copied onto the root so only cells that differ get dirty
+    private final Console canvas;
+
+    private final List<Layer> layers = new ArrayList<>();
+
+    // the root cells to redraw on the next compose, as an inclusive span per row like Console's own dirty spans
+    private final int[] dirtyMin;
+    private final int[] dirtyMax;
+
+    /** How many root cells the last compose() redrew */
+    @Getter
+    private int cellsComposed;
+
+    /** A console in the stack.  Created by addLayer. */
+    public static class Layer {
+        private final Compositor owner;
+
+        @Getter private final Console console;
+        @Getter private int x;
+        @Getter private int y;
+        @Getter private float fgAlpha = 1;
+        @Getter private float bgAlpha = 1;
+        @Getter private boolean visible = true;
+
+        private Layer(Compositor owner, Console console, int x, int y) {
+            this.owner = owner;
+            this.console = console;
+            this.x = x;
+            this.y = y;
+        }
+
+        public void moveTo(int x, int y) {
+            if ((x == this.x) && (y == this.y)) return;
+            invalidate();
+            this.x = x;
+            this.y = y;
+            invalidate();
+        }
+
+        /** Sets the alphas the layer is blitted with, as in Console.blit */
+        public void setAlpha(float fgAlpha, float bgAlpha) {
+            if ((fgAlpha == this.fgAlpha) && (bgAlpha == this.bgAlpha)) return;
+            this.fgAlpha = fgAlpha;
+            this.bgAlpha = bgAlpha;
+            invalidate();
+        }
+
+        public void setVisible(boolean visible) {
+            if (visible == this.visible) return;
+            this.visible = visible;
+            invalidate();
+        }
+
+        /** Sets the key color of the layer's console.  Set it here rather than on the console so it gets redrawn. */
+        public void setKeyColor(Color keyColor) {
+            console.setKeyColor(keyColor);
+            invalidate();
+        }
+
+        /** Redraws the whole layer on the next compose, for changes the console doesn't track */
+        public void invalidate() {
+            owner.markDirty(x, y, console.getWidth(), console.getHeight());
+        }
+    }
+
+    public Compositor(Console root) {
+        this.root = root;
+        canvas = new Console(root.getWidth(), root.getHeight());
+        dirtyMin = new int[root.getHeight()];
+        dirtyMax = new int[root.getHeight()];
+        invalidate();
+    }
+
+    /** Adds a layer on top of the others, with its top left corner at x,y of the root */
+    public Layer addLayer(Console console, int x, int y) {
+        Layer layer = new Layer(this, console, x, y);
+        layers.add(layer);
+        layer.invalidate();
+        return layer;
+    }
+
+    /** Adds a layer on top of the others, blitted with the given alphas */
+    public Layer addLayer(Console console, int x, int y, float fgAlpha, float bgAlpha) {
+        Layer layer = addLayer(console, x, y);
+        layer.setAlpha(fgAlpha, bgAlpha);
+        return layer;
+    }
+
+    public void removeLayer(Layer layer) {
+        if (layers.remove(layer)) layer.invalidate();
+    }
+
+    /** Returns the layers, bottom first */
+    public List<Layer> getLayers() {
+        return Collections.unmodifiableList(layers);
+    }
+
+    /** Redraws the whole root on the next compose */
+    public void invalidate() {
+        markDirty(0, 0, root.getWidth(), root.getHeight());
+    }
+
+    // adds a rectangle of the root to the cells to redraw
+    private void markDirty(int x, int y, int w, int h) {
+        int x1 = Math.max(x, 0);
+        int x2 = Math.min(x + w, root.getWidth()) - 1;
+        if (x1 > x2) return;
+        for (int iy = Math.max(y, 0); iy < Math.min(y + h, root.getHeight()); iy++) {
+            if (x1 < dirtyMin[iy]) dirtyMin[iy] = x1;
+            if (x2 > dirtyMax[iy]) dirtyMax[iy] = x2;
+        }
+    }
+
+    /** Redraws whatever changed since the last call onto the root.  Call it before flushing the root. */
+    public void compose() {
+        for (Layer layer : layers) {
+            Console console = layer.console;
+            if (layer.visible) {
+                for (int ly = 0; ly < console.getHeight(); ly++) {
+                    int min = console.getDirtyMin(ly);
+                    int max = console.getDirtyMax(ly);
+                    if (max >= min) markDirty(layer.x + min, layer.y + ly, (max - min) + 1, 1);
+                }
+            }
+            console.markClean();
+        }
+
+        canvas.setDefaultChar(root.getDefaultChar());
+        canvas.setDefaultForeground(root.getDefaultForeground());
+        canvas.setDefaultBackground(root.getDefaultBackground());
+
+        cellsComposed = 0;
+        for (int y = 0; y < dirtyMin.length; y++) {
+            int x1 = dirtyMin[y];
+            int x2 = dirtyMax[y];
+            if (x2 < x1) continue;
+            int w = (x2 - x1) + 1;
+
+            canvas.clear(x1, y, w, 1);
+            for (Layer layer : layers) {
+                if (!layer.visible) continue;
+                layer.console.blit(x1 - layer.x, y - layer.y, w, 1, canvas, x1, y, layer.fgAlpha, layer.bgAlpha);
+            }
+            canvas.blit(x1, y, w, 1, root, x1, y, 1, 1);
+            cellsComposed += w;
+
+            dirtyMin[y] = root.getWidth();
+            dirtyMax[y] = -1;
+        }
+        canvas.markClean();
+    }
+}
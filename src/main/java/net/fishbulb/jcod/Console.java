@@ -9,10 +9,16 @@ import net.fishbulb.jcod.display.Tile;
 import net.fishbulb.jcod.display.TileDisplay;
 import net.fishbulb.jcod.display.Tileset;
 import net.fishbulb.jcod.util.BlendFunction;
+import net.fishbulb.jcod.util.BlendMode;
 import net.fishbulb.jcod.util.CharCodes;
+import net.fishbulb.jcod.util.ColorUtils;
+
+import java.util.Arrays;
 
 import static java.lang.Math.min;
-import static net.fishbulb.jcod.util.ColorUtils.lerp;
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888;
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888FromBytes;
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888ToColor;
 
 /**
  * ==Incompatibilities==
@@ -33,7 +39,6 @@ import static net.fishbulb.jcod.util.ColorUtils.lerp;
  * <li>setCustomFont (use setTileSet instead)</li>
  * <li>is/setFullScreen,setWindowTitle,isWindowClosed (window control not possible)</li>
  * <li>get/setFade,getFadingColor (control the TileDisplay actor instead)</li>
- * <li>setDirty (not applicable)</li>
  * <li>load/saveApf and load/saveAsc (haven't bothered, might eventually support them)</li>
  * <li>credits (I'll do something different)</li>
  * <li></li>
@@ -42,7 +47,7 @@ import static net.fishbulb.jcod.util.ColorUtils.lerp;
 
 public class Console {
 
-    @Getter @Setter @NonNull
+    @Getter @NonNull
     private Tileset tileSet;
 
     @Getter
@@ -66,9 +71,21 @@ public class Console {
     @Getter @Setter
     private BlendFunction blendFunction = null;
 
-    private final Cell[] cells;
+    // Cell storage is one flat array per attribute, indexed by (y * width) + x.  Colors are packed RGBA8888.
+    private final char[] chars;
+    private final int[] fgs;
+    private final int[] bgs;
 
-    @Getter @Setter
+    // Dirty span of each row (inclusive), i.e. the cells that flush() still has to push to the display.
+    // A row is clean when its max is less than its min.
+    private final int[] dirtyMin;
+    private final int[] dirtyMax;
+
+    // scratch colors for running blend functions against packed colors
+    private final Color blendSource = new Color();
+    private final Color blendDest = new Color();
+
+    @Getter
     private TileDisplay display;
 
     // color controls are directly interpolated into strings which is why they aren't enums
@@ -82,8 +99,13 @@ public class Console {
     public static final char COLCTRL_BACK_RGB = 7;
     public static final char COLCTRL_STOP = 8;
 
-    private Color[] colorControlFore = new Color[COLCTRL_NUMBER];
-    private Color[] colorControlBack = new Color[COLCTRL_NUMBER];
+    // packed colors of each control, indexed by the control code itself.  Unset controls leave colors unchanged.
+    private final int[] colorControlFore = new int[COLCTRL_NUMBER + 1];
+    private final int[] colorControlBack = new int[COLCTRL_NUMBER + 1];
+    private final boolean[] colorControlSet = new boolean[COLCTRL_NUMBER + 1];
+
+    private static final int BLACK = rgba8888(Color.BLACK);
+    private static final int WHITE = rgba8888(Color.WHITE);
 
     public static enum Alignment {Left, Right, Center}
 
@@ -101,12 +123,12 @@ public class Console {
             throw new IllegalArgumentException("Invalid console dimensions specified (must be at least 1x1)");
         }
 
-        cells = new Cell[width * height];
-        Tile template = (tileSet == null) ? new Tile((Drawable)null) : tileSet.get(defaultChar);
-        for (int i = 0; i < (width * height); i++) {
-            Tile t = template.copy().fg(defaultForeground).bg(defaultBackground);
-            cells[i] = new Cell(defaultChar, t);
-        }
+        chars = new char[width * height];
+        fgs = new int[width * height];
+        bgs = new int[width * height];
+        dirtyMin = new int[height];
+        dirtyMax = new int[height];
+        clear();
     }
 
     public Console(int width, int height, Tileset tileSet) {
@@ -117,16 +139,108 @@ public class Console {
         this(width, height, null, null);
     }
 
-    private Cell cellAt(int x, int y) {
+    // returns the storage index of a cell, or -1 if it's off the console
+    private int index(int x, int y) {
         if ((x >= 0) && (x < width) && (y >= 0) && (y < height))
-            return cells[((y * width) + x)];
+            return (y * width) + x;
         else
-            return null;
+            return -1;
+    }
+
+    // blends a packed color onto another, returning the packed result
+    private int blend(int dest, int col, BlendFunction func) {
+        if (func == null) return col;
+        return ColorUtils.blend(func, col, dest, blendSource, blendDest);
+    }
+
+    private Drawable glyph(char c) {
+        if (tileSet == null) return null;
+        Tile t = tileSet.get(c);
+        return (t == null) ? null : t.glyph();
+    }
+
+    // writes a cell, marking it dirty if anything actually changed
+    private void store(int x, int y, int i, char c, int fg, int bg) {
+        if ((chars[i] == c) && (fgs[i] == fg) && (bgs[i] == bg)) return;
+        chars[i] = c;
+        fgs[i] = fg;
+        bgs[i] = bg;
+        if (x < dirtyMin[y]) dirtyMin[y] = x;
+        if (x > dirtyMax[y]) dirtyMax[y] = x;
+    }
+
+    /**
+     * Marks a rectangle as needing to be pushed to the display on the next flush.  Modifications through the
+     * console API are tracked automatically, so this is only needed when something else changes what the display
+     * shows, such as remapping the tileset directly.
+     */
+    public void setDirty(int x, int y, int w, int h) {
+        int x1 = Math.max(x, 0);
+        int x2 = min(x + w, width) - 1;
+        if (x1 > x2) return;
+        for (int iy = Math.max(y, 0); iy < min(y + h, height); iy++) {
+            if (x1 < dirtyMin[iy]) dirtyMin[iy] = x1;
+            if (x2 > dirtyMax[iy]) dirtyMax[iy] = x2;
+        }
+    }
+
+    /**
+     * JCOD extension: Returns the number of rectangles that the next flush will push to the display.  Each rectangle
+     * is a run of rows sharing the same dirty span, so this is 0 when nothing changed and 1 after a clear().
+     */
+    public int getDirtyRectCount() {
+        int count = 0;
+        int prevMin = 0;
+        int prevMax = -1;
+        for (int y = 0; y < height; y++) {
+            int lo = dirtyMin[y];
+            int hi = dirtyMax[y];
+            if ((hi >= lo) && ((lo != prevMin) || (hi != prevMax))) count++;
+            prevMin = lo;
+            prevMax = hi;
+        }
+        return count;
+    }
+
+    /** JCOD extension: Returns the number of cells that the next flush will push to the display. */
+    public int getDirtyCellCount() {
+        int count = 0;
+        for (int y = 0; y < height; y++) {
+            if (dirtyMax[y] >= dirtyMin[y]) count += dirtyMax[y] - dirtyMin[y] + 1;
+        }
+        return count;
+    }
+
+    // the dirty span of a row, for a Compositor reading changes to its layers
+    int getDirtyMin(int y) {
+        return dirtyMin[y];
+    }
+
+    int getDirtyMax(int y) {
+        return dirtyMax[y];
+    }
+
+    // forgets every change, as flush does once it has pushed them
+    void markClean() {
+        Arrays.fill(dirtyMin, width);
+        Arrays.fill(dirtyMax, -1);
+    }
+
+    public void setTileSet(Tileset tileSet) {
+        if (tileSet == null) throw new NullPointerException("tileSet");
+        this.tileSet = tileSet;
+        setDirty(0, 0, width, height);
+    }
+
+    public void setDisplay(TileDisplay display) {
+        this.display = display;
+        setDirty(0, 0, width, height);
     }
 
 
     public void mapAsciiCodeToFont(char asciiCode, int fontCharX, int fontCharY) {
         tileSet.mapChar(asciiCode, tileSet.get(fontCharX, fontCharY));
+        setDirty(0, 0, width, height);
     }
 
     public void mapAsciiCodesToFont(char firstAsciiCode, int nbCodes, int fontCharX, int fontCharY) {
@@ -152,66 +266,99 @@ public class Console {
     }
 
     public void clear() {
-        for (Cell cell : cells) {
-            cell.c(defaultChar).fg(defaultForeground).bg(defaultBackground);
+        Arrays.fill(chars, defaultChar);
+        Arrays.fill(fgs, rgba8888(defaultForeground));
+        Arrays.fill(bgs, rgba8888(defaultBackground));
+        setDirty(0, 0, width, height);
+    }
+
+    /** JCOD extension: Clears a rectangle to the default character and colors, marking all of it dirty */
+    public void clear(int x, int y, int w, int h) {
+        int x1 = Math.max(x, 0);
+        int x2 = min(x + w, width);
+        int y1 = Math.max(y, 0);
+        int y2 = min(y + h, height);
+        if ((x1 >= x2) || (y1 >= y2)) return;
+
+        int fg = rgba8888(defaultForeground);
+        int bg = rgba8888(defaultBackground);
+        for (int iy = y1; iy < y2; iy++) {
+            int row = iy * width;
+            Arrays.fill(chars, row + x1, row + x2, defaultChar);
+            Arrays.fill(fgs, row + x1, row + x2, fg);
+            Arrays.fill(bgs, row + x1, row + x2, bg);
         }
+        setDirty(x1, y1, x2 - x1, y2 - y1);
     }
 
     public void setCharBackground(int x, int y, Color col, BlendFunction blendFunc) {
-        Cell c = cellAt(x, y);
-        if (c == null) return;
-        if (blendFunc == null) {
-            c.bg(col);
-        } else {
-            Color bg = c.bg();
-            blendFunc.blend(col, bg, bg);
-            c.bg(bg);
-        }
+        setCharBackground(x, y, rgba8888(col), blendFunc);
+    }
+
+    /** JCOD extension: Sets the cell's background from a packed RGBA8888 color */
+    public void setCharBackground(int x, int y, int rgba, BlendFunction blendFunc) {
+        int i = index(x, y);
+        if (i < 0) return;
+        store(x, y, i, chars[i], fgs[i], blend(bgs[i], rgba, blendFunc));
     }
 
+    /** Returns a copy of the cell's background color.  Changing it will not affect the console. */
     public Color getCharBackground(int x, int y) {
-        Cell c = cellAt(x, y);
-        if (c == null)
-            return Color.BLACK.cpy();
-        else
-            return c.bg();
+        return rgba8888ToColor(getCharBackgroundRGBA(x, y), new Color());
+    }
+
+    /** JCOD extension: Returns the cell's background as a packed RGBA8888 color, or black off the console */
+    public int getCharBackgroundRGBA(int x, int y) {
+        int i = index(x, y);
+        return (i < 0) ? BLACK : bgs[i];
     }
 
     public void setCharBackground(int x, int y, Color col) {
         setCharBackground(x, y, col, blendFunction);
     }
 
+    public void setCharBackground(int x, int y, int rgba) {
+        setCharBackground(x, y, rgba, blendFunction);
+    }
+
+    /** Returns a copy of the cell's foreground color.  Changing it will not affect the console. */
     public Color getCharForeground(int x, int y) {
-        Cell c = cellAt(x, y);
-        if (c == null)
-            return Color.WHITE.cpy();
-        else
-            return c.fg();
+        return rgba8888ToColor(getCharForegroundRGBA(x, y), new Color());
+    }
+
+    /** JCOD extension: Returns the cell's foreground as a packed RGBA8888 color, or white off the console */
+    public int getCharForegroundRGBA(int x, int y) {
+        int i = index(x, y);
+        return (i < 0) ? WHITE : fgs[i];
     }
 
     public void setCharForeground(int x, int y, Color col) {
-        Cell c = cellAt(x, y);
-        if (c == null) return;
-        c.fg(col);
+        setCharForeground(x, y, rgba8888(col));
+    }
+
+    /** JCOD extension: Sets the cell's foreground from a packed RGBA8888 color */
+    public void setCharForeground(int x, int y, int rgba) {
+        int i = index(x, y);
+        if (i < 0) return;
+        store(x, y, i, chars[i], rgba, bgs[i]);
     }
 
     public char getChar(int x, int y) {
-        Cell c = cellAt(x, y);
-        if (c == null) return 0;
-        return c.c();
+        int i = index(x, y);
+        if (i < 0) return 0;
+        return chars[i];
     }
 
     public void setChar(int x, int y, char ch) {
-        Cell c = cellAt(x, y);
-        if (c == null) return;
-        c.c(ch);
+        int i = index(x, y);
+        if (i < 0) return;
+        store(x, y, i, ch, fgs[i], bgs[i]);
     }
 
     public void putChar(int x, int y, char ch, BlendFunction func) {
-        Cell c = cellAt(x, y);
-        if (c == null) return;
-        cellAt(x, y).c(ch).fg(defaultForeground);
-        setCharBackground(x, y, defaultBackground, func);
+        int i = index(x, y);
+        if (i < 0) return;
+        store(x, y, i, ch, rgba8888(defaultForeground), blend(bgs[i], rgba8888(defaultBackground), func));
     }
 
     public void putChar(int x, int y, char ch) {
@@ -220,9 +367,14 @@ public class Console {
 
     /** Sets all character properties at once.  Background is set unconditionally (no blend function) */
     public void putCharEx(int x, int y, char ch, Color fore, Color back) {
-        Cell c = cellAt(x, y);
-        if (c == null) return;
-        c.c(ch).fg(fore).bg(back);
+        putCharEx(x, y, ch, rgba8888(fore), rgba8888(back));
+    }
+
+    /** JCOD extension: putCharEx with packed RGBA8888 colors */
+    public void putCharEx(int x, int y, char ch, int fore, int back) {
+        int i = index(x, y);
+        if (i < 0) return;
+        store(x, y, i, ch, fore, back);
     }
 
     // for compatibility
@@ -235,25 +387,37 @@ public class Console {
         setBlendFunction(func);
     }
 
+    /** Copies cells that changed since the last flush onto the display */
     public void flush() {
-        // blit tiles from cells onto display
         if (display == null) return;
         for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                display.setTile(x, y, cellAt(x, y).tile);
+            int x1 = dirtyMin[y];
+            int x2 = dirtyMax[y];
+            if (x2 < x1) continue;
+            int i = (y * width) + x1;
+            for (int x = x1; x <= x2; x++, i++) {
+                display.setTile(x, y, glyph(chars[i]), fgs[i], bgs[i]);
             }
+            dirtyMin[y] = width;
+            dirtyMax[y] = -1;
         }
     }
 
     //static void setColorControl(TCOD_colctrl_t con, const TCODColor &fore, const TCODColor &back);
     public void setColorControl(char ctrl, Color fg, Color bg) {
+        setColorControl(ctrl, rgba8888(fg), rgba8888(bg));
+    }
+
+    /** JCOD extension: setColorControl with packed RGBA8888 colors */
+    public void setColorControl(char ctrl, int fg, int bg) {
         if ((ctrl < 1) || (ctrl > COLCTRL_NUMBER)) {
             throw new IllegalArgumentException(
-                    String.format("Color control (%s) out of range -- must be between 1 and %s", ctrl, COLCTRL_NUMBER)
+                    String.format("Color control (%s) out of range -- must be between 1 and %s", (int) ctrl, (int) COLCTRL_NUMBER)
             );
         }
-        colorControlFore[ctrl] = fg.cpy();
-        colorControlBack[ctrl] = bg.cpy();
+        colorControlFore[ctrl] = fg;
+        colorControlBack[ctrl] = bg;
+        colorControlSet[ctrl] = true;
     }
 
 
@@ -336,13 +500,21 @@ public class Console {
      * @param func  Blending function to use for background
      */
     public void putString(int x, int y, int xmax, int ymax, String str, int pos, Alignment align, Color fg, Color bg, BlendFunction func) {
+        putString(x, y, xmax, ymax, str, pos, align, rgba8888(fg), rgba8888(bg), func);
+    }
+
+    /**
+     * JCOD extension: putString with packed RGBA8888 default colors.  Color codes in the string are decoded straight
+     * to packed colors, so printing allocates nothing.
+     */
+    public void putString(int x, int y, int xmax, int ymax, String str, int pos, Alignment align, int fg, int bg, BlendFunction func) {
         int strlen = str.length();
         int len = lineLength(str, pos);
         if (len == 0) return;
         int leftMargin = x;
 
-        Color origFg = fg;
-        Color origBg = bg;
+        int origFg = fg;
+        int origBg = bg;
 
         switch (align) {
             case Left: /* no change */ break;
@@ -365,16 +537,18 @@ public class Console {
                     continue;
 
                 case COLCTRL_1: case COLCTRL_2: case COLCTRL_3: case COLCTRL_4: case COLCTRL_5:
-                    if (colorControlFore[c] != null) fg = colorControlFore[c];
-                    if (colorControlBack[c] != null) bg = colorControlBack[c];
+                    if (colorControlSet[c]) {
+                        fg = colorControlFore[c];
+                        bg = colorControlBack[c];
+                    }
                     continue;
 
                 case COLCTRL_BACK_RGB:
-                    bg = new Color((float) str.charAt(++i) / 255f, (float) str.charAt(++i) / 255f, (float) str.charAt(++i) / 255f, (float) str.charAt(++i) / 255f);
+                    bg = rgba8888FromBytes(str.charAt(++i), str.charAt(++i), str.charAt(++i), str.charAt(++i));
                     continue;
 
                 case COLCTRL_FORE_RGB:
-                    fg = new Color((float) str.charAt(++i) / 255f, (float) str.charAt(++i) / 255f, (float) str.charAt(++i) / 255f, (float) str.charAt(++i) / 255f);
+                    fg = rgba8888FromBytes(str.charAt(++i), str.charAt(++i), str.charAt(++i), str.charAt(++i));
                     continue;
 
                 case COLCTRL_STOP:
@@ -384,18 +558,11 @@ public class Console {
 
                 default:
                     if (x >= xmax) continue;        // went past margin
-                    Cell cell = cellAt(x++, y);
-                    if (cell == null) continue;     // went off the edge
-
-                    cell.c(c).fg(fg);
+                    int cx = x++;
+                    int idx = index(cx, y);
+                    if (idx < 0) continue;          // went off the edge
 
-                    if (func == null) {
-                        cell.bg(bg);
-                    } else {
-                        Color dest = cell.bg();
-                        func.blend(bg, dest, dest);
-                        cell.bg(dest);
-                    }
+                    store(cx, y, idx, c, fg, blend(bgs[idx], bg, func));
             }
 
         }
@@ -541,15 +708,33 @@ public class Console {
     }
 
 
+    /**
+     * Fills a rectangle's background with the default background color, blended with the given function.  With
+     * clear=false this is also how to tint part or all of the console, and BlendModes do each row in one pass.
+     * The whole rectangle is marked dirty, whether or not a cell actually changed.
+     */
     public void rect(int x, int y, int w, int h, boolean clear, BlendFunction blend) {
-        for (int iy = y; iy < (y + h); iy++) {
-            for (int ix = x; ix < (x + w); ix++) {
-                setCharBackground(ix, iy, defaultBackground, blend);
-                if (clear) {
-                    setChar(ix, iy, defaultChar);
+        int x1 = Math.max(x, 0);
+        int x2 = min(x + w, width);
+        int y1 = Math.max(y, 0);
+        int y2 = min(y + h, height);
+        if ((x1 >= x2) || (y1 >= y2)) return;
+
+        int bg = rgba8888(defaultBackground);
+        for (int iy = y1; iy < y2; iy++) {
+            int row = iy * width;
+            if (blend == null) {
+                Arrays.fill(bgs, row + x1, row + x2, bg);
+            } else if (blend instanceof BlendMode) {
+                ((BlendMode) blend).blendRegion(bg, bgs, row + x1, x2 - x1);
+            } else {
+                for (int i = row + x1; i < row + x2; i++) {
+                    bgs[i] = blend(bgs[i], bg, blend);
                 }
             }
+            if (clear) Arrays.fill(chars, row + x1, row + x2, defaultChar);
         }
+        setDirty(x1, y1, x2 - x1, y2 - y1);
     }
 
     public void rect(int x, int y, int w, int h, boolean clear) {
@@ -615,86 +800,123 @@ public class Console {
         printFrame(x, y, w, h, true, blendFunction, null);
     }
 
-    @SuppressWarnings({"ConstantConditions", "UnusedDeclaration"})
+    /**
+     * Copies a rectangle of this console onto another, as TCOD_console_blit does.  The rectangle is clipped to both
+     * consoles once, then opaque blits without a key color copy whole rows, and the rest blend cell by cell on packed
+     * colors.  A console can be blitted onto itself, even where the rectangles overlap.
+     */
+    @SuppressWarnings("UnusedDeclaration")
     public void blit(int xSrc, int ySrc, int wSrc, int hSrc, Console dest, int xDest, int yDest,
                      float fgAlpha, float bgAlpha) {
         // if wSrc or hSrc are 0, set them to width or height
         if (wSrc == 0) wSrc = width;
         if (hSrc == 0) hSrc = height;
-        for (int iy = 0; iy < hSrc; iy++) {
-            for (int ix = 0; ix < wSrc; ix++) {
-                Cell srcCell = cellAt(xSrc + ix, ySrc + iy);
-                if (srcCell == null) continue;
-
-                Cell dstCell = dest.cellAt(xDest + ix, yDest + iy);
-                if (dstCell == null) continue;
 
-                if ((keyColor != null) && keyColor.equals(srcCell.bg())) {
-                    // transparent key color, skip it
-                    continue;
+        // clip to the part of the rectangle that's on both consoles, as offsets into it
+        int x1 = Math.max(0, Math.max(-xSrc, -xDest));
+        int x2 = min(wSrc, min(width - xSrc, dest.width - xDest));
+        int y1 = Math.max(0, Math.max(-ySrc, -yDest));
+        int y2 = min(hSrc, min(height - ySrc, dest.height - yDest));
+        if ((x1 >= x2) || (y1 >= y2)) return;
+
+        boolean opaque = (Math.abs(1.0 - fgAlpha) < 0.001) && (Math.abs(1.0 - bgAlpha) < 0.001);
+        boolean keyed = (keyColor != null);
+        int key = keyed ? rgba8888(keyColor) : 0;
+
+        // the TCOD blend's lerp weights, as fixed point fractions of 256
+        int fgWeight = weight(fgAlpha);
+        int bgWeight = weight(bgAlpha);
+        int fadeWeight = weight(fgAlpha * 2);
+        int showWeight = weight((fgAlpha - 0.5f) * 2);
+
+        // copying down or right within one console has to start from the far end, so cells aren't read after being
+        // overwritten.  Bulk row copies already handle that within a row.
+        boolean upward = (dest == this) && (yDest > ySrc);
+        boolean leftward = (dest == this) && (yDest == ySrc) && (xDest > xSrc);
+        for (int n = y1; n < y2; n++) {
+            int iy = upward ? (y2 - 1) - (n - y1) : n;
+            int dy = yDest + iy;
+            int src = ((ySrc + iy) * width) + xSrc + x1;
+            int dst = (dy * dest.width) + xDest + x1;
+            int count = x2 - x1;
+
+            if (opaque && !keyed) {
+                copyRow(src, dest, dy, xDest + x1, dst, count);
+            } else if (opaque) {
+                for (int k = 0; k < count; k++) {
+                    int i = leftward ? (count - 1) - k : k;
+                    if (bgs[src + i] == key) continue;
+                    dest.store(xDest + x1 + i, dy, dst + i, chars[src + i], fgs[src + i], bgs[src + i]);
                 }
-
-                if ((Math.abs(1.0 - fgAlpha) < 0.001) && (Math.abs(1.0 - bgAlpha) < 0.001)) {
-                    dstCell.c(srcCell.c()).fg(srcCell.fg()).bg(srcCell.bg());
-                } else {
-                    // copied wholesale from TCOD_console_blit
-                    dstCell.bg(lerp(dstCell.bg(), srcCell.bg(), bgAlpha));
-                    if (srcCell.c() == ' ') {
-                        dstCell.fg(lerp(dstCell.fg(), srcCell.bg(), bgAlpha));
-                    } else if (dstCell.c() == ' ') {
-                        dstCell.c(srcCell.c());
-                        dstCell.fg(lerp(dstCell.bg(), srcCell.fg(), fgAlpha));
-                    } else if (dstCell.c() == srcCell.c()) {
-                        dstCell.fg(lerp(dstCell.fg(), srcCell.fg(), fgAlpha));
-                    } else {
-                        if (fgAlpha < 0.5f) {
-                            dstCell.fg(lerp(dstCell.fg(), dstCell.bg(), fgAlpha * 2));
-                        } else {
-                            dstCell.c = srcCell.c;
-                            dstCell.fg(lerp(dstCell.bg(), srcCell.fg(), (fgAlpha - 0.5f) * 2));
-                        }
-                    }
+            } else {
+                for (int k = 0; k < count; k++) {
+                    int i = leftward ? (count - 1) - k : k;
+                    int srcBg = bgs[src + i];
+                    if (keyed && (key == srcBg)) continue;
+                    blendCell(chars[src + i], fgs[src + i], srcBg, dest, xDest + x1 + i, dy, dst + i,
+                            fgAlpha < 0.5f, fgWeight, bgWeight, fadeWeight, showWeight);
                 }
             }
         }
     }
 
-    protected class Cell {
-        private char c;
-        private Tile tile;
-
-        public Cell(char c, Tile tile) {
-            this.c = c;
-            this.tile = tile;
-        }
-
-        public char c() {
-            return c;
-        }
-
-        public Cell c(char c) {
-            this.c = c;
-            if (tileSet != null)
-                tile.glyph(tileSet.get(c).glyph());
-            return this;
-        }
-
-        public Color fg() {
-            return tile.fg();
-        }
-
-        public Cell fg(Color fg) {
-            tile.fg(fg);
-            return this;
+    // copies count cells from src onto a row of dest, marking only the span between the first and last changed cells
+    private void copyRow(int src, Console dest, int dy, int dx, int dst, int count) {
+        int first = 0;
+        while ((first < count) && (chars[src + first] == dest.chars[dst + first])
+                && (fgs[src + first] == dest.fgs[dst + first]) && (bgs[src + first] == dest.bgs[dst + first])) {
+            first++;
+        }
+        if (first == count) return;
+        int last = count - 1;
+        while ((chars[src + last] == dest.chars[dst + last])
+                && (fgs[src + last] == dest.fgs[dst + last]) && (bgs[src + last] == dest.bgs[dst + last])) {
+            last--;
+        }
+
+        int length = (last - first) + 1;
+        System.arraycopy(chars, src + first, dest.chars, dst + first, length);
+        System.arraycopy(fgs, src + first, dest.fgs, dst + first, length);
+        System.arraycopy(bgs, src + first, dest.bgs, dst + first, length);
+        if (dx + first < dest.dirtyMin[dy]) dest.dirtyMin[dy] = dx + first;
+        if (dx + last > dest.dirtyMax[dy]) dest.dirtyMax[dy] = dx + last;
+    }
+
+    // copied wholesale from TCOD_console_blit, with the lerp coefficients worked out once per blit
+    private static void blendCell(char srcChar, int srcFg, int srcBg, Console dest, int dx, int dy, int dst,
+                                  boolean fade, int fgWeight, int bgWeight, int fadeWeight, int showWeight) {
+        char dstChar = dest.chars[dst];
+        int dstFg = dest.fgs[dst];
+        int dstBg = lerp(dest.bgs[dst], srcBg, bgWeight);
+        if (srcChar == ' ') {
+            dstFg = lerp(dstFg, srcBg, bgWeight);
+        } else if (dstChar == ' ') {
+            dstChar = srcChar;
+            dstFg = lerp(dstBg, srcFg, fgWeight);
+        } else if (dstChar == srcChar) {
+            dstFg = lerp(dstFg, srcFg, fgWeight);
+        } else {
+            if (fade) {
+                dstFg = lerp(dstFg, dstBg, fadeWeight);
+            } else {
+                dstChar = srcChar;
+                dstFg = lerp(dstBg, srcFg, showWeight);
+            }
         }
+        dest.store(dx, dy, dst, dstChar, dstFg, dstBg);
+    }
 
-        public Color bg() {
-            return tile.bg();
-        }
+    // a lerp coefficient as a fixed point fraction of 256, clamped to 0..1
+    private static int weight(float coef) {
+        return Math.max(0, min(256, Math.round(coef * 256)));
+    }
 
-        public Cell bg(Color bg) {
-            tile.bg(bg);
-            return this;
-        }
+    // packed lerp with a fixed point weight, keeping the alpha of from like ColorUtils.lerp
+    private static int lerp(int from, int to, int weight) {
+        int fr = from >>> 24, fg = (from >>> 16) & 0xff, fb = (from >>> 8) & 0xff;
+        int r = fr + (((((to >>> 24) - fr) * weight) + 128) >> 8);
+        int g = fg + ((((((to >>> 16) & 0xff) - fg) * weight) + 128) >> 8);
+        int b = fb + ((((((to >>> 8) & 0xff) - fb) * weight) + 128) >> 8);
+        return (r << 24) | (g << 16) | (b << 8) | (from & 0xff);
     }
 }
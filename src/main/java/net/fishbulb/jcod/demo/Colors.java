@@ -7,6 +7,7 @@ import net.fishbulb.jcod.util.BlendMode;
 import java.util.Random;
 
 import static net.fishbulb.jcod.util.ColorUtils.lerp;
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888;
 
 public class Colors extends DemoApplet {
 
@@ -81,13 +82,14 @@ public class Colors extends DemoApplet {
         textColor.b = 1.0f - textColor.b;
         textColor.a = 1.0f;
         // put random text (for performance tests)
+        // packed colors, so the per-cell work allocates nothing
+        int black = rgba8888(Color.BLACK);
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
-                Color col = console.getCharBackground(x, y);
-                col = lerp(col, Color.BLACK, 0.5f);
+                int col = lerp(console.getCharBackgroundRGBA(x, y), black, 0.5f);
                 char c = (char) (rng.nextInt(('z' - 'a') + 1) + 'a');
-                console.setDefaultForeground(col);
-                console.putChar(x, y, c, BlendMode.None);
+                console.setChar(x, y, c);
+                console.setCharForeground(x, y, col);
             }
         }
 
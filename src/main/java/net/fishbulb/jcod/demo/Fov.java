@@ -3,8 +3,14 @@ package net.fishbulb.jcod.demo;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.graphics.Color;
 import net.fishbulb.jcod.Console;
+import net.fishbulb.jcod.fov.BasicRadiusStrategy;
+import net.fishbulb.jcod.fov.LightGrid;
+import net.fishbulb.jcod.fov.Lighting;
+import net.fishbulb.jcod.fov.ResistanceGrid;
+import net.fishbulb.jcod.fov.ShadowFOV;
 import net.fishbulb.jcod.util.BlendMode;
 import net.fishbulb.jcod.util.CharCodes;
+import toxi.math.noise.PerlinNoise;
 
 public class Fov extends DemoApplet {
     String[] map = new String[]{
@@ -30,8 +36,11 @@ public class Fov extends DemoApplet {
             "##############################################",
     };
 
+    // wall torches, lit along with the player's torch
+    int[][] torches = {{8, 16}, {38, 16}, {42, 9}};
+
     int torchRadius = 10;
-    boolean flicker = false;
+    boolean torch = false;
     boolean recompute = true;
     boolean lightWalls = true;
 
@@ -39,18 +48,41 @@ public class Fov extends DemoApplet {
     Color lightWall = new Color(0.5f, 0.4f, 0.2f, 1f);
     Color darkGround = new Color(0.2f, 0.2f, 0.6f, 1);
     Color lightGround = new Color(0.8f, 0.7f, 0.2f, 1f);
+    Color cur = new Color();
 
     int px = 20;
     int py = 10;
 
     private long lastUpdate;
 
+    private ResistanceGrid resistance;
+    private ShadowFOV fov = new ShadowFOV();
+    private LightGrid sight;
+
+    private Lighting lighting;
+    private Lighting.Light playerTorch;
+    private PerlinNoise noise = new PerlinNoise();
+    private float torchTime;
+
     public Fov(Console parent) {
         super(parent);
         initFov();
     }
 
     private void initFov() {
+        resistance = new ResistanceGrid(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                resistance.set(x, y, (map[y].charAt(x) == '#') ? 1 : 0);
+            }
+        }
+        sight = new LightGrid(width, height);
+
+        lighting = new Lighting(resistance);
+        playerTorch = lighting.addLight(px, py, torchRadius, 1f, 0.8f, 0.5f);
+        for (int[] t : torches) {
+            lighting.addLight(t[0], t[1], 6, 1f, 0.5f, 0.2f);
+        }
     }
 
     @Override public void update() {
@@ -63,29 +95,44 @@ public class Fov extends DemoApplet {
         console.setDefaultForeground(Color.WHITE);
         console.print(1, 0, "WASD: Move around");
         console.print(1, 1, "L: Light Walls");
-        console.print(1, 2, "T: Torch (not yet)");
+        console.print(1, 2, "T: Torch");
         console.print(1, 3, "X: Algorithm");
 
         console.setDefaultForeground(Color.BLACK);
 
         console.putChar(px, py, '@', BlendMode.None);
-//        algo.computeFov(px, py, 0, lightWalls);
+        if (recompute) {
+            // without a torch the player sees as far as the map goes
+            fov.calculateFOV(resistance, sight, px, py, 1, torch ? 1f / torchRadius : 0, BasicRadiusStrategy.CIRCLE);
+            recompute = false;
+        }
+        if (torch) {
+            // flickering only changes intensity, so no light is cast again unless the player moves
+            torchTime += 0.2f;
+            playerTorch.setIntensity(0.8f + (0.2f * noise.noise(torchTime)));
+            lighting.update();
+        }
 
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
                 char c = map[y].charAt(x);
-//                boolean lit = light.isFov(x, y);
-                boolean lit = false;
-                switch (c) {
-                    case '=':
-                        console.putChar(x, y, CharCodes.OEM.DHLINE, BlendMode.None);
-                    case ' ':
-                        console.setCharBackground(x, y, lit ? lightGround : darkGround);
-                        break;
-                    case '#':
-                        console.setCharBackground(x, y, lit ? lightWall : darkWall);
-                        break;
+                boolean wall = (c == '#');
+                boolean lit = sight.isLit(x, y) && (lightWalls || !wall);
+                Color dark = wall ? darkWall : darkGround;
+                Color light = wall ? lightWall : lightGround;
+                if (!lit) {
+                    cur.set(dark);
+                } else if (!torch) {
+                    cur.set(light);
+                } else {
+                    cur.set(dark);
+                    cur.r += (light.r - dark.r) * lighting.getRed(x, y);
+                    cur.g += (light.g - dark.g) * lighting.getGreen(x, y);
+                    cur.b += (light.b - dark.b) * lighting.getBlue(x, y);
+                    cur.clamp();
                 }
+                if (c == '=') console.putChar(x, y, CharCodes.OEM.DHLINE, BlendMode.None);
+                console.setCharBackground(x, y, cur);
             }
         }
     }
@@ -97,6 +144,8 @@ public class Fov extends DemoApplet {
             px = x;
             py = y;
             console.putChar(px, py, '@', BlendMode.None);
+            playerTorch.moveTo(px, py);
+            recompute = true;
         }
     }
 
@@ -115,7 +164,9 @@ public class Fov extends DemoApplet {
                 moveTo(px + 1, py);
                 return true;
             case Input.Keys.T:
-                // TODO: torch effect
+                torch = !torch;
+                recompute = true;
+                return true;
             case Input.Keys.L:
                 lightWalls = !lightWalls;
                 return true;
@@ -1,5 +1,6 @@
 package net.fishbulb.jcod.demo;
 
+import net.fishbulb.jcod.Compositor;
 import net.fishbulb.jcod.Console;
 import net.fishbulb.jcod.util.BlendMode;
 
@@ -8,6 +9,10 @@ public class Offscreen extends DemoApplet {
     Console snapshot;
     Console window;
 
+    // redraws only the cells the window leaves or enters
+    Compositor compositor;
+    Compositor.Layer windowLayer;
+
     long lastUpdate = 0;
     long updateMillis = 500;   // every half second
 
@@ -27,6 +32,10 @@ public class Offscreen extends DemoApplet {
         window.printRectEx(width / 4, 2, width / 2 - 2, height / 2,
                 BlendMode.None, Console.Alignment.Center,
                 "You can render to an offscreen console and blit in on another one, simulating alpha transparency.");
+
+        compositor = new Compositor(console);
+        compositor.addLayer(snapshot, 0, 0);
+        windowLayer = compositor.addLayer(window, x, y, 1.0f, 0.75f);
     }
 
     @Override public void update() {
@@ -34,7 +43,6 @@ public class Offscreen extends DemoApplet {
         if ((now - lastUpdate) < updateMillis) return;
         lastUpdate = now;
 
-        console.print(0, 0, "" + now);
         x += xdir;
         y += ydir;
 
@@ -48,10 +56,7 @@ public class Offscreen extends DemoApplet {
         else if (y == -5)
             ydir = 1;
 
-        // restore the initial screen
-        snapshot.blit(0, 0, width, height, console, 0, 0, 1, 1);
-
-        // blit the overlapping screen
-        window.blit(0, 0, window.getWidth(), window.getHeight(), console, x, y, 1.0f, 0.75f);
+        windowLayer.moveTo(x, y);
+        compositor.compose();
     }
 }
@@ -7,6 +7,9 @@ import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import lombok.Getter;
 import lombok.NonNull;
 
+import java.util.Arrays;
+import java.util.Map;
+
 public class ImageTileset extends BaseTileset {
 
     @NonNull @Getter
@@ -33,6 +36,10 @@ public class ImageTileset extends BaseTileset {
 
     private Tile[][] tiles;
 
+    // Resolved tile for every char, so get(char) is a single array load.  Chars past the end resolve to null.
+    // Kept in sync by mapChar, unmapChar and setTileMap, so don't modify the tile map directly.
+    private Tile[] lookup;
+
     public ImageTileset(Texture texture, int tileWidth, int tileHeight, Layout layout) {
         this.texture = texture;
         this.tileWidth = tileWidth;
@@ -53,6 +60,7 @@ public class ImageTileset extends BaseTileset {
                 tiles[r][c] = new Tile(new TextureRegionDrawable(split[r][c]));
             }
         }
+        rebuildLookup();
     }
 
     public ImageTileset(String path, int tileWidth, int tileHeight, Layout layout) {
@@ -71,10 +79,48 @@ public class ImageTileset extends BaseTileset {
     }
 
     @Override public Tile get(char idx) {
-        Tile t = getTileMap().get(idx);
-        if (t != null)
-            return t;
-        else if (layout == Layout.TCOD)
+        Tile[] l = lookup;
+        return (idx < l.length) ? l[idx] : null;
+    }
+
+    @Override public void mapChar(char from, Tile to) {
+        super.mapChar(from, to);
+        if (from >= lookup.length) {
+            lookup = Arrays.copyOf(lookup, from + 1);
+        }
+        lookup[from] = (to != null) ? to : getUnmapped(from);
+    }
+
+    @Override public void unmapChar(char c) {
+        super.unmapChar(c);
+        if (c < lookup.length) {
+            lookup[c] = getUnmapped(c);
+        }
+    }
+
+    @Override public void setTileMap(Map<Character, Tile> tileMap) {
+        super.setTileMap(tileMap);
+        rebuildLookup();
+    }
+
+    private void rebuildLookup() {
+        int size = (layout == Layout.TCOD) ? ascii_to_tcod_table.length : rows() * columns();
+        int unmappedSize = size;
+        for (Character c : getTileMap().keySet()) {
+            size = Math.max(size, c + 1);
+        }
+        lookup = new Tile[size];
+        for (char c = 0; c < unmappedSize; c++) {
+            lookup[c] = getUnmapped(c);
+        }
+        for (Map.Entry<Character, Tile> e : getTileMap().entrySet()) {
+            if (e.getValue() != null) lookup[e.getKey()] = e.getValue();
+        }
+    }
+
+    // resolves a char through the layout alone, ignoring mapped chars
+    protected Tile getUnmapped(char idx) {
+        if (layout == Layout.TCOD)
             return (idx > 255) ? null : get(ascii_to_tcod_table[idx], Layout.InRows);
         else
             return get(idx, layout);
@@ -9,9 +9,10 @@ import com.badlogic.gdx.scenes.scene2d.ui.Widget;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import lombok.Getter;
-import lombok.Setter;
 
 import static java.lang.Math.abs;
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888;
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888ToColor;
 
 public class TileDisplay extends Widget {
 
@@ -28,11 +29,27 @@ public class TileDisplay extends Widget {
     @Getter
     private final int tileHeight;
 
-    @Getter @Setter
+    @Getter
     private Tile bgTile;
 
     private final Tile[][] tiles;
 
+    // tiles owned by the display itself, filled in by the packed setTile.  Lazily allocated.
+    private Tile[][] ownTiles;
+
+    /**
+     * Sprites draws every tile with its own batch call.  Mesh keeps a TileMesh of the whole grid up to date as tiles
+     * are set, and submits backgrounds and glyphs as one vertex array each.  Mesh mode snapshots a tile when it's
+     * set, so changing a Tile object afterward has no effect until it's set again.  It also requires glyphs to be
+     * TextureRegionDrawables from a single texture, and falls back to Sprites drawing when they aren't.
+     */
+    public static enum RenderMode {Sprites, Mesh}
+
+    @Getter
+    private RenderMode renderMode = RenderMode.Sprites;
+
+    private TileMesh mesh;
+
     public TileDisplay(int columns, int rows, int tileWidth, int tileHeight, Tile bgTile) {
         this.columns = columns;
         this.rows = rows;
@@ -52,23 +69,94 @@ public class TileDisplay extends Widget {
 
     public void setTile(int x, int y, Tile tile) {
         tiles[x][y] = tile;
+        if (mesh != null) {
+            if (tile == null)
+                mesh.clearCell(x, y);
+            else
+                mesh.setCell(x, y, tile.getGlyph(), rgba8888(tile.fg()), rgba8888(tile.bg()));
+        }
+    }
+
+    /**
+     * Sets the tile at x,y from a glyph and packed RGBA8888 colors.  The display copies these into a tile it owns,
+     * so nothing passed in is retained.
+     */
+    public void setTile(int x, int y, Drawable glyph, int fg, int bg) {
+        if (ownTiles == null) ownTiles = new Tile[columns][rows];
+        Tile tile = ownTiles[x][y];
+        if (tile == null) {
+            tile = new Tile(glyph);
+            ownTiles[x][y] = tile;
+        }
+        tile.glyph(glyph);
+        rgba8888ToColor(fg, tile.fg());
+        rgba8888ToColor(bg, tile.bg());
+        tiles[x][y] = tile;
+        if (mesh != null) mesh.setCell(x, y, glyph, fg, bg);
     }
 
     @SuppressWarnings("UnusedDeclaration") // Not an accessor, so I have to suppress the warning
     public void clearTile(int x, int y, Tile tile) {
         tiles[x][y] = null;
+        if (mesh != null) mesh.clearCell(x, y);
+    }
+
+    public void setBgTile(Tile bgTile) {
+        this.bgTile = bgTile;
+        if ((mesh != null) && (bgRegion() != null)) mesh.setBackgroundRegion(bgRegion());
+    }
+
+    public void setRenderMode(RenderMode renderMode) {
+        this.renderMode = renderMode;
+        if (renderMode == RenderMode.Mesh) {
+            mesh = new TileMesh(columns, rows, tileWidth, tileHeight);
+            if (bgRegion() != null) mesh.setBackgroundRegion(bgRegion());
+            for (int x = 0; x < columns; x++) {
+                for (int y = 0; y < rows; y++) {
+                    if (tiles[x][y] != null) setTile(x, y, tiles[x][y]);
+                }
+            }
+        } else {
+            mesh = null;
+        }
+    }
+
+    private TextureRegion bgRegion() {
+        if ((bgTile == null) || !(bgTile.getGlyph() instanceof TextureRegionDrawable)) return null;
+        return ((TextureRegionDrawable) bgTile.getGlyph()).getRegion();
     }
 
     @Override
     public void draw(SpriteBatch batch, float parentAlpha) {
-        // Color.equals compares int components and doesn't need an epsilon
-        if ((abs(1.0 - parentAlpha) < 0.0001) && getColor().equals(Color.WHITE)) {
+        // the mesh can only draw backgrounds from a texture region
+        if ((mesh != null) && mesh.isUniform() && ((bgTile == null) || (bgRegion() != null))) {
+            drawMesh(batch, parentAlpha);
+        } else if ((abs(1.0 - parentAlpha) < 0.0001) && getColor().equals(Color.WHITE)) {
+            // Color.equals compares int components and doesn't need an epsilon
             drawSimple(batch);
         } else {
             drawHairy(batch, parentAlpha);
         }
     }
 
+    // Submits the whole grid as two vertex arrays.  The actor color is baked into the vertices, so batch color is unused
+    private void drawMesh(SpriteBatch batch, float parentAlpha) {
+        Color base = getColor();
+        mesh.setTint(base.r, base.g, base.b, base.a * parentAlpha);
+        mesh.setOrigin(getX(), getY());
+
+        float[] vertices;
+        TextureRegion bg = bgRegion();
+        if (bg != null) {
+            vertices = mesh.getBackgroundVertices();
+            batch.draw(bg.getTexture(), vertices, 0, vertices.length);
+        }
+        if (mesh.getGlyphTexture() != null) {
+            vertices = mesh.getGlyphVertices();
+            batch.draw(mesh.getGlyphTexture(), vertices, 0, vertices.length);
+        }
+    }
+
     // Draws tiles without any adjustment to sprite batch color
     private void drawSimple(SpriteBatch batch) {
         float xPos = getX();
@@ -92,7 +180,7 @@ public class TileDisplay extends Widget {
             for (int y = 0; y < rows; y++) {
                 int yy = (rows - y - 1);
                 Tile tile = tiles[x][y];
-                if (tile == null) continue;
+                if ((tile == null) || (tile.getGlyph() == null)) continue;
                 Drawable glyph = tile.getGlyph();
                 batch.setColor(tile.fg());
                 glyph.draw(batch, xPos + (x * tileWidth), yPos + (yy * tileHeight), tileWidth, tileHeight);
@@ -128,7 +216,7 @@ public class TileDisplay extends Widget {
             for (int y = 0; y < rows; y++) {
                 int yy = (rows - y - 1);
                 Tile tile = tiles[x][y];
-                if (tile == null) continue;
+                if ((tile == null) || (tile.getGlyph() == null)) continue;
                 Drawable glyph = tile.getGlyph();
                 cur.set(tile.fg());
                 batch.setColor(cur.mul(base));
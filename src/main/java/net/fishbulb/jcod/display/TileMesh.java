@@ -0,0 +1,268 @@
+package net.fishbulb.jcod.display;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
+import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import lombok.Getter;
+
+/**
+ * Vertex data for a grid of tiles, laid out the way SpriteBatch expects it (x, y, packed color, u, v for each vertex,
+ * four vertices per tile) so a whole layer can be submitted with one batch.draw(texture, vertices, offset, length)
+ * call.  Backgrounds and glyphs live in separate arrays, since they're drawn from different textures.
+ * <p/>
+ * Only the vertices of cells that are set get rewritten, except when the origin or tint changes, which touches every
+ * cell.  Nothing in here talks to GL, so it can be built and measured headlessly.
+ * <p/>
+ * Glyphs must all be TextureRegionDrawables on the same texture.  While any cell's glyph breaks that rule the mesh is
+ * not uniform, and callers should fall back to drawing tiles individually.
+ */
+public class TileMesh {
+
+    /** Floats per vertex: x, y, color, u, v */
+    public static final int VERTEX_SIZE = 5;
+
+    /** Floats per tile (one quad) */
+    public static final int TILE_SIZE = VERTEX_SIZE * 4;
+
+    @Getter
+    private final int columns;
+
+    @Getter
+    private final int rows;
+
+    @Getter
+    private final int tileWidth;
+
+    @Getter
+    private final int tileHeight;
+
+    @Getter
+    private final float[] backgroundVertices;
+
+    @Getter
+    private final float[] glyphVertices;
+
+    /** The texture all glyphs are drawn from, or null if no glyph has been set yet */
+    @Getter
+    private Texture glyphTexture;
+
+    // cells whose glyph is a region on glyphTexture
+    private int textureCells;
+
+    // cells whose glyph can't be drawn from the mesh, because it isn't a region or is on another texture
+    private final boolean[] stray;
+    private int strayCells;
+
+    // what each cell was last set to, indexed by (y * columns) + x, so cells can be rewritten on origin or tint changes
+    private final TextureRegion[] glyphs;
+    private final boolean[] notRegion;
+    private final int[] fgs;
+    private final int[] bgs;
+    private final boolean[] present;
+
+    private float bgU, bgV, bgU2 = 1, bgV2 = 1;
+
+    private float originX;
+    private float originY;
+
+    private float tintR = 1, tintG = 1, tintB = 1, tintA = 1;
+    private boolean tinted = false;
+
+    public TileMesh(int columns, int rows, int tileWidth, int tileHeight) {
+        this.columns = columns;
+        this.rows = rows;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+
+        int cells = columns * rows;
+        backgroundVertices = new float[cells * TILE_SIZE];
+        glyphVertices = new float[cells * TILE_SIZE];
+        glyphs = new TextureRegion[cells];
+        notRegion = new boolean[cells];
+        stray = new boolean[cells];
+        fgs = new int[cells];
+        bgs = new int[cells];
+        present = new boolean[cells];
+    }
+
+    /** Sets the texture coordinates used for every background quad, usually a single white pixel */
+    public void setBackgroundRegion(TextureRegion region) {
+        bgU = region.getU();
+        bgV = region.getV();
+        bgU2 = region.getU2();
+        bgV2 = region.getV2();
+        rewriteAll();
+    }
+
+    /** Moves the bottom left corner of the grid, rewriting all positions if it actually moved */
+    public void setOrigin(float x, float y) {
+        if ((x == originX) && (y == originY)) return;
+        originX = x;
+        originY = y;
+        rewriteAll();
+    }
+
+    /** Sets a color that all cell colors are multiplied by, recoloring every cell if it actually changed */
+    public void setTint(float r, float g, float b, float a) {
+        if ((r == tintR) && (g == tintG) && (b == tintB) && (a == tintA)) return;
+        tintR = r;
+        tintG = g;
+        tintB = b;
+        tintA = a;
+        tinted = (r != 1) || (g != 1) || (b != 1) || (a != 1);
+        rewriteAll();
+    }
+
+    /** True while every glyph is a TextureRegionDrawable on glyphTexture, so the mesh can draw them all */
+    public boolean isUniform() {
+        return strayCells == 0;
+    }
+
+    /**
+     * Sets a cell from a glyph and packed RGBA8888 colors.  A null glyph draws only the background.
+     */
+    public void setCell(int x, int y, Drawable glyph, int fg, int bg) {
+        int i = (y * columns) + x;
+        uncount(i);
+        if ((glyph == null) || (glyph instanceof TextureRegionDrawable)) {
+            glyphs[i] = (glyph == null) ? null : ((TextureRegionDrawable) glyph).getRegion();
+        } else {
+            notRegion[i] = true;
+        }
+        count(i);
+        fgs[i] = fg;
+        bgs[i] = bg;
+        present[i] = true;
+        writeCell(i, x, y);
+    }
+
+    /** Empties a cell so that neither its background nor its glyph is drawn */
+    public void clearCell(int x, int y) {
+        int i = (y * columns) + x;
+        uncount(i);
+        present[i] = false;
+        writeCell(i, x, y);
+    }
+
+    // counts a cell's glyph as on glyphTexture or stray, adopting its texture if no glyph is on glyphTexture
+    private void count(int i) {
+        TextureRegion glyph = glyphs[i];
+        if (!notRegion[i]) {
+            if (glyph == null) return;
+            if (textureCells == 0) glyphTexture = glyph.getTexture();
+            if (glyph.getTexture() == glyphTexture) {
+                textureCells++;
+                return;
+            }
+        }
+        stray[i] = true;
+        strayCells++;
+    }
+
+    // takes a cell's glyph out of the counts and forgets it
+    private void uncount(int i) {
+        TextureRegion glyph = glyphs[i];
+        glyphs[i] = null;
+        notRegion[i] = false;
+        if (stray[i]) {
+            stray[i] = false;
+            strayCells--;
+        } else if ((glyph != null) && (--textureCells == 0) && (strayCells > 0)) {
+            // the strays that are left may all share another texture, which the mesh could draw
+            strayCells = 0;
+            for (int j = 0; j < stray.length; j++) {
+                if (!stray[j]) continue;
+                stray[j] = false;
+                count(j);
+            }
+        }
+    }
+
+    private void rewriteAll() {
+        int i = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++, i++) {
+                writeCell(i, x, y);
+            }
+        }
+    }
+
+    private void writeCell(int i, int x, int y) {
+        int offset = i * TILE_SIZE;
+        float left = originX + (x * tileWidth);
+        float bottom = originY + ((rows - y - 1) * tileHeight);
+
+        if (!present[i]) {
+            collapse(backgroundVertices, offset, left, bottom);
+            collapse(glyphVertices, offset, left, bottom);
+            return;
+        }
+
+        quad(backgroundVertices, offset, left, bottom, color(bgs[i]), bgU, bgV, bgU2, bgV2);
+
+        TextureRegion glyph = glyphs[i];
+        if (glyph == null) {
+            collapse(glyphVertices, offset, left, bottom);
+        } else {
+            quad(glyphVertices, offset, left, bottom, color(fgs[i]),
+                    glyph.getU(), glyph.getV(), glyph.getU2(), glyph.getV2());
+        }
+    }
+
+    // vertex order matches SpriteBatch.draw(TextureRegion, x, y, width, height)
+    private void quad(float[] v, int offset, float x, float y, float color, float u, float v1, float u2, float v2) {
+        float x2 = x + tileWidth;
+        float y2 = y + tileHeight;
+
+        v[offset++] = x;
+        v[offset++] = y;
+        v[offset++] = color;
+        v[offset++] = u;
+        v[offset++] = v2;
+
+        v[offset++] = x;
+        v[offset++] = y2;
+        v[offset++] = color;
+        v[offset++] = u;
+        v[offset++] = v1;
+
+        v[offset++] = x2;
+        v[offset++] = y2;
+        v[offset++] = color;
+        v[offset++] = u2;
+        v[offset++] = v1;
+
+        v[offset++] = x2;
+        v[offset++] = y;
+        v[offset++] = color;
+        v[offset++] = u2;
+        v[offset] = v2;
+    }
+
+    // a zero-area quad, which rasterizes to nothing
+    private void collapse(float[] v, int offset, float x, float y) {
+        for (int end = offset + TILE_SIZE; offset < end; offset += VERTEX_SIZE) {
+            v[offset] = x;
+            v[offset + 1] = y;
+            v[offset + 2] = 0;
+            v[offset + 3] = 0;
+            v[offset + 4] = 0;
+        }
+    }
+
+    private float color(int rgba) {
+        int r = rgba >>> 24;
+        int g = (rgba >>> 16) & 0xff;
+        int b = (rgba >>> 8) & 0xff;
+        int a = rgba & 0xff;
+        if (tinted) {
+            r = (int) (r * tintR);
+            g = (int) (g * tintG);
+            b = (int) (b * tintB);
+            a = (int) (a * tintA);
+        }
+        return Color.toFloatBits(r, g, b, a);
+    }
+}
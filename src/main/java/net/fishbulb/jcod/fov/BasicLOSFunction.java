@@ -4,7 +4,11 @@ import lombok.Getter;
 import net.fishbulb.jcod.util.PlotFunction;
 
 class BasicLOSFunction implements PlotFunction {
+    // exactly one of these is set
     private float[][] resistanceMap;
+    private float[] resistanceCells;
+    private int width;
+
     private final int startx;
     private final int starty;
     float currentForce;
@@ -23,10 +27,21 @@ class BasicLOSFunction implements PlotFunction {
         this.radiusStrategy = radiusStrategy;
     }
 
+    BasicLOSFunction(ResistanceGrid resistance, int startx, int starty, float currentForce, float decay, RadiusStrategy radiusStrategy) {
+        this.resistanceCells = resistance.getCells();
+        this.width = resistance.getWidth();
+        this.startx = startx;
+        this.starty = starty;
+        this.currentForce = currentForce;
+        this.decay = decay;
+        this.radiusStrategy = radiusStrategy;
+    }
+
     @Override
     public boolean apply(int x, int y, float val) {
         if (x != startx || y != starty) {
-            currentForce *= (1 - resistanceMap[x][y]);
+            float resistance = (resistanceCells != null) ? resistanceCells[(y * width) + x] : resistanceMap[x][y];
+            currentForce *= (1 - resistance);
         }
         double radius = radiusStrategy.radius(startx, starty, x, y);
         reachable = currentForce - (radius * decay) > 0;
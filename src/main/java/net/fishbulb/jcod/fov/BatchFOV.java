@@ -0,0 +1,224 @@
+package net.fishbulb.jcod.fov;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the FOV of many viewers on the same map in parallel, e.g. every NPC on a level once per turn.
+ * <p/>
+ * Viewers are split into one contiguous chunk per worker, and each chunk runs on its own solver instance, so solvers
+ * never need to be thread safe.  Solvers come from a Supplier and are kept for the life of the engine, which lets
+ * solvers that reuse scratch space (like ShadowFOV) skip allocation after the first batch.  Batches are run one at a
+ * time; concurrent calls on one engine wait for each other.
+ * <p/>
+ * The map must not be modified while a batch is running.
+ */
+public class BatchFOV {
+
+    /** One FOV origin and how far it reaches, with the same meaning as the FOVSolver.calculateFOV arguments */
+    public static class Viewer {
+        public final int x;
+        public final int y;
+        public final float force;
+        public final float decay;
+        public final RadiusStrategy radiusStrategy;
+
+        public Viewer(int x, int y, float force, float decay, RadiusStrategy radiusStrategy) {
+            this.x = x;
+            this.y = y;
+            this.force = force;
+            this.decay = decay;
+            this.radiusStrategy = radiusStrategy;
+        }
+
+        /** A viewer with a force of 1, a decay of 1 / radius and a circular radius */
+        public Viewer(int x, int y, float radius) {
+            this(x, y, 1f, 1f / radius, BasicRadiusStrategy.CIRCLE);
+        }
+    }
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final FOVSolver[] solvers;
+
+    // output buffers of the grid batches, by viewer index
+    private final List<LightGrid> lightGrids = new ArrayList<>();
+
+    // copies of the resistance grid for solvers that aren't GridFOVSolvers, by worker
+    private final float[][][] resistanceMaps;
+
+    /**
+     * Creates an engine that runs on a caller-owned executor, with one solver per worker.
+     *
+     * @param solvers makes a fresh solver instance each time it's called
+     * @param executor runs the chunks.  It should have at least `workers` threads to get full parallelism.
+     * @param workers the number of chunks each batch is split into
+     */
+    public BatchFOV(Supplier<? extends FOVSolver> solvers, ExecutorService executor, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be at least 1");
+        }
+        this.executor = executor;
+        this.ownsExecutor = false;
+        this.solvers = makeSolvers(solvers, workers);
+        this.resistanceMaps = new float[workers][][];
+    }
+
+    /**
+     * Creates an engine with its own fixed pool of daemon threads.  Call shutdown() once it's no longer needed.
+     *
+     * @param solvers makes a fresh solver instance each time it's called
+     * @param threads the number of worker threads
+     */
+    public BatchFOV(Supplier<? extends FOVSolver> solvers, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jcod-fov-%d").build());
+        this.ownsExecutor = true;
+        this.solvers = makeSolvers(solvers, threads);
+        this.resistanceMaps = new float[threads][][];
+    }
+
+    /** Creates an engine with one daemon thread per available processor */
+    public BatchFOV(Supplier<? extends FOVSolver> solvers) {
+        this(solvers, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static FOVSolver[] makeSolvers(Supplier<? extends FOVSolver> supplier, int count) {
+        FOVSolver[] solvers = new FOVSolver[count];
+        for (int i = 0; i < count; i++) {
+            solvers[i] = supplier.get();
+        }
+        return solvers;
+    }
+
+    public int getWorkers() {
+        return solvers.length;
+    }
+
+    /**
+     * Calculates the FOV of every viewer.  Each result is a fresh light map, in the same order as the viewers.
+     */
+    public synchronized List<float[][]> calculateFOV(final float[][] resistanceMap, final List<Viewer> viewers) {
+        final float[][][] results = new float[viewers.size()][][];
+        run(viewers.size(), new Chunk() {
+            @Override
+            public void run(int worker, FOVSolver solver, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    Viewer v = viewers.get(i);
+                    results[i] = solver.calculateFOV(resistanceMap, v.x, v.y, v.force, v.decay, v.radiusStrategy);
+                }
+            }
+        });
+        List<float[][]> list = new ArrayList<>(results.length);
+        Collections.addAll(list, results);
+        return list;
+    }
+
+    /**
+     * Calculates the FOV of every viewer on a flat grid.  The returned grids are owned by the engine and overwritten by
+     * the next grid batch, so copy anything that has to outlive it.  Solvers that aren't GridFOVSolvers go through
+     * float[][] copies, one per worker, which are kept and refilled by later batches.
+     */
+    public synchronized List<LightGrid> calculateFOV(final ResistanceGrid resistance, final List<Viewer> viewers) {
+        while (lightGrids.size() < viewers.size()) {
+            lightGrids.add(null);
+        }
+        for (int i = 0; i < viewers.size(); i++) {
+            LightGrid grid = lightGrids.get(i);
+            if ((grid == null) || (grid.getWidth() != resistance.getWidth()) || (grid.getHeight() != resistance.getHeight())) {
+                lightGrids.set(i, new LightGrid(resistance.getWidth(), resistance.getHeight()));
+            }
+        }
+
+        run(viewers.size(), new Chunk() {
+            @Override
+            public void run(int worker, FOVSolver solver, int from, int to) {
+                float[][] map = (solver instanceof GridFOVSolver) ? null : resistanceMap(worker, resistance);
+                for (int i = from; i < to; i++) {
+                    Viewer v = viewers.get(i);
+                    LightGrid light = lightGrids.get(i);
+                    if (map == null) {
+                        ((GridFOVSolver) solver).calculateFOV(resistance, light, v.x, v.y, v.force, v.decay, v.radiusStrategy);
+                    } else {
+                        light.copyFrom(solver.calculateFOV(map, v.x, v.y, v.force, v.decay, v.radiusStrategy));
+                    }
+                }
+            }
+        });
+        // a copy of the list rather than a view, so a later, larger batch growing lightGrids doesn't break it
+        return Collections.unmodifiableList(new ArrayList<>(lightGrids.subList(0, viewers.size())));
+    }
+
+    // the worker's float[][] copy of the resistance grid, allocated only when the map size changes
+    private float[][] resistanceMap(int worker, ResistanceGrid resistance) {
+        float[][] map = resistanceMaps[worker];
+        if ((map == null) || !resistance.sameSize(map)) {
+            map = new float[resistance.getWidth()][resistance.getHeight()];
+            resistanceMaps[worker] = map;
+        }
+        resistance.copyInto(map);
+        return map;
+    }
+
+    /** Stops the worker threads if the engine created them.  A caller-supplied executor is left alone. */
+    public void shutdown() {
+        if (ownsExecutor) executor.shutdown();
+    }
+
+    private interface Chunk {
+        void run(int worker, FOVSolver solver, int from, int to);
+    }
+
+    // splits count items into one contiguous range per worker, and waits for all of them.  Even when one fails or the
+    // caller is interrupted, every chunk is finished before this returns, since the next batch reuses the same solvers.
+    private void run(int count, final Chunk chunk) {
+        if (count == 0) return;
+        int workers = Math.min(solvers.length, count);
+        if (workers == 1) {
+            chunk.run(0, solvers[0], 0, count);
+            return;
+        }
+
+        List<Future<Void>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            final int worker = w;
+            final FOVSolver solver = solvers[w];
+            final int from = (int) ((long) count * w / workers);
+            final int to = (int) ((long) count * (w + 1) / workers);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    chunk.run(worker, solver, from, to);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calculating FOV", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            MergedFOV.awaitAll(futures);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package net.fishbulb.jcod.fov;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * A width x height grid of booleans packed 64 to a long.  Each row starts on a fresh word, so bit x of row y is bit
+ * (x % 64) of word (y * wordsPerRow) + (x / 64).
+ * <p/>
+ * Used by the boolean-only shadowcasting path, which reads opacity and writes visibility without touching floats.
+ */
+public class BitGrid {
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    @Getter
+    private final int wordsPerRow;
+
+    /** The backing array, shared rather than copied */
+    @Getter
+    private final long[] words;
+
+    public BitGrid(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid grid dimensions specified (must be at least 1x1)");
+        }
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words = new long[wordsPerRow * height];
+    }
+
+    /** Returns a grid with the bits of a [x][y] boolean map */
+    public static BitGrid of(boolean[][] map) {
+        BitGrid grid = new BitGrid(map.length, map[0].length);
+        grid.copyFrom(map, 0, 0, grid.width, grid.height);
+        return grid;
+    }
+
+    /** Returns a grid with a bit set for every cell of a [x][y] resistance map that's fully opaque */
+    public static BitGrid opaque(float[][] resistanceMap) {
+        BitGrid grid = new BitGrid(resistanceMap.length, resistanceMap[0].length);
+        for (int x = 0; x < grid.width; x++) {
+            float[] column = resistanceMap[x];
+            for (int y = 0; y < grid.height; y++) {
+                if (column[y] >= 1f) grid.set(x, y);
+            }
+        }
+        return grid;
+    }
+
+    public final boolean get(int x, int y) {
+        return (words[(y * wordsPerRow) + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public final void set(int x, int y) {
+        words[(y * wordsPerRow) + (x >>> 6)] |= (1L << x);
+    }
+
+    public final void set(int x, int y, boolean value) {
+        if (value) {
+            set(x, y);
+        } else {
+            clear(x, y);
+        }
+    }
+
+    public final void clear(int x, int y) {
+        words[(y * wordsPerRow) + (x >>> 6)] &= ~(1L << x);
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /** Clears a rectangle, which must lie within the grid */
+    public void clear(int x, int y, int w, int h) {
+        if ((w <= 0) || (h <= 0)) return;
+        int firstWord = x >>> 6;
+        int lastWord = (x + w - 1) >>> 6;
+        // bits from x up in the first word, and bits up to x + w - 1 in the last
+        long firstMask = -1L << x;
+        long lastMask = -1L >>> (63 - ((x + w - 1) & 63));
+        for (int row = y; row < y + h; row++) {
+            int base = row * wordsPerRow;
+            if (firstWord == lastWord) {
+                words[base + firstWord] &= ~(firstMask & lastMask);
+            } else {
+                words[base + firstWord] &= ~firstMask;
+                for (int i = firstWord + 1; i < lastWord; i++) {
+                    words[base + i] = 0L;
+                }
+                words[base + lastWord] &= ~lastMask;
+            }
+        }
+    }
+
+    /** Returns the number of set bits */
+    public int count() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /** Copies a rectangle of an [x][y] boolean map into the same cells of this grid */
+    public void copyFrom(boolean[][] map, int x, int y, int w, int h) {
+        for (int col = x; col < x + w; col++) {
+            boolean[] column = map[col];
+            for (int row = y; row < y + h; row++) {
+                set(col, row, column[row]);
+            }
+        }
+    }
+
+    /** Copies a rectangle of this grid into the same cells of an [x][y] boolean map */
+    public void copyInto(boolean[][] map, int x, int y, int w, int h) {
+        for (int col = x; col < x + w; col++) {
+            boolean[] column = map[col];
+            for (int row = y; row < y + h; row++) {
+                column[row] = get(col, row);
+            }
+        }
+    }
+
+    /** Returns a new [x][y] boolean map with the contents of this grid */
+    public boolean[][] toArray() {
+        boolean[][] map = new boolean[width][height];
+        copyInto(map, 0, 0, width, height);
+        return map;
+    }
+}
@@ -1,22 +1,105 @@
 package net.fishbulb.jcod.fov;
 
-import static net.fishbulb.jcod.util.PlotAlgorithms.Bresenham;
-
 /**
  * A Bresenham-based line-of-sight algorithm.
  *
+ * The line is walked inline rather than through a PlotFunction, so a check allocates nothing.  Results are the same
+ * as running BasicLOSFunction over PlotAlgorithms.Bresenham.  For the circular strategy, distances are compared
+ * squared, and the square root is only taken for cells right at the edge of the range.
+ *
  * Adapted from SquidPony implementation by Eben Howard - http://squidpony.com - howard@squidpony.com
  */
-public class BresenhamLOS implements LOSSolver {
+public class BresenhamLOS implements GridLOSSolver {
+
+    // squared distances within this fraction of the squared range are checked exactly
+    private static final double EDGE = 1e-3;
+
     @Override
     public boolean isReachable(float[][] resistanceMap, int startx, int starty, int targetx, int targety, float force, float decay, RadiusStrategy radiusStrategy) {
-        BasicLOSFunction solver = new BasicLOSFunction(resistanceMap, startx, starty, force, decay, radiusStrategy);
-        Bresenham.apply(startx, starty, targetx, targety, solver);
-        return solver.isReachable();
+        return walk(resistanceMap, null, 0, startx, starty, targetx, targety, force, decay, radiusStrategy);
+    }
+
+    @Override
+    public boolean isReachable(ResistanceGrid resistance, int startx, int starty, int targetx, int targety, float force, float decay, RadiusStrategy radiusStrategy) {
+        return walk(null, resistance.getCells(), resistance.getWidth(), startx, starty, targetx, targety, force, decay, radiusStrategy);
     }
 
     @Override
     public boolean isReachable(float[][] resistanceMap, int startx, int starty, int targetx, int targety) {
         return isReachable(resistanceMap, startx, starty, targetx, targety, Float.MAX_VALUE, 0f, BasicRadiusStrategy.CIRCLE);
     }
+
+    // reads resistanceMap, or cells when it's null
+    private static boolean walk(float[][] resistanceMap, float[] cells, int width, int startx, int starty, int targetx, int targety,
+                                float force, float decay, RadiusStrategy radiusStrategy) {
+        int dx = targetx - startx;
+        int dy = targety - starty;
+        int ax = Math.abs(dx) << 1;
+        int ay = Math.abs(dy) << 1;
+        int sx = Integer.signum(dx);
+        int sy = Integer.signum(dy);
+        boolean xMajor = ax >= ay;
+        int d = xMajor ? ay - (ax >> 1) : ax - (ay >> 1);
+
+        // a decay of 0 makes distance irrelevant for the basic strategies, and circles can skip the square root
+        boolean noDistance = (decay == 0) && (radiusStrategy instanceof BasicRadiusStrategy);
+        boolean squared = (decay > 0) && (radiusStrategy == BasicRadiusStrategy.CIRCLE);
+        double range2 = squared ? range2(force, decay) : 0;
+
+        float currentForce = force;
+        int x = startx;
+        int y = starty;
+        while (true) {
+            if ((x != startx) || (y != starty)) {
+                float resistance = (cells != null) ? cells[(y * width) + x] : resistanceMap[x][y];
+                if (resistance != 0) {
+                    currentForce *= (1 - resistance);
+                    if (squared) range2 = range2(currentForce, decay);
+                }
+            }
+
+            boolean reachable;
+            if (noDistance) {
+                reachable = currentForce > 0;
+            } else if (squared && (currentForce <= 0)) {
+                reachable = false;
+            } else {
+                long ddx = x - startx;
+                long ddy = y - starty;
+                double distance2 = (ddx * ddx) + (ddy * ddy);
+                if (squared && (distance2 < range2 * (1 - EDGE))) {
+                    reachable = true;
+                } else if (squared && (distance2 > range2 * (1 + EDGE))) {
+                    reachable = false;
+                } else {
+                    double radius = radiusStrategy.radius(startx, starty, x, y);
+                    reachable = currentForce - (radius * decay) > 0;
+                }
+            }
+            if (!reachable) return false;
+
+            if (xMajor) {
+                if (x == targetx) return true;
+                if (d >= 0) {
+                    y += sy;
+                    d -= ax;
+                }
+                x += sx;
+                d += ay;
+            } else {
+                if (y == targety) return true;
+                if (d >= 0) {
+                    x += sx;
+                    d -= ay;
+                }
+                y += sy;
+                d += ax;
+            }
+        }
+    }
+
+    private static double range2(float force, float decay) {
+        double range = (double) force / decay;
+        return range * range;
+    }
 }
@@ -0,0 +1,254 @@
+package net.fishbulb.jcod.fov;
+
+import lombok.Getter;
+
+import java.awt.Rectangle;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An FOVSolver decorator that remembers recent results, for viewers that ask for the same FOV turn after turn.
+ * <p/>
+ * Results are keyed by map (by identity), origin, and either force, decay and radius strategy or the plain radius, and
+ * evicted least recently used first.  The cache can't see changes to a map on its own, so callers must report them: invalidate() after replacing
+ * or rewriting a map, or markChanged() for a rectangle of edited cells, which only drops results whose lit cells, or
+ * the cells next to them, are in it.  Both work by bumping counters, so they cost nothing per cached entry.
+ * <p/>
+ * The cells an entry depends on are found by scanning its light map once when it's computed, rather than trusting the
+ * radius, since solvers such as MergedFOV with a range multiplier light past it.
+ * <p/>
+ * Cached light maps are shared between callers and must not be modified.
+ */
+public class CachedFOV implements FOVSolver {
+
+    // edits are tracked per square region of this many cells on a side
+    private static final int REGION_SIZE = 16;
+
+    private final FOVSolver solver;
+
+    private final int capacity;
+
+    @Getter
+    private long hits;
+
+    @Getter
+    private long misses;
+
+    /** Entries dropped to stay within capacity */
+    @Getter
+    private long evictions;
+
+    /** Bumped by invalidate().  Entries from an older epoch are never returned. */
+    @Getter
+    private int epoch;
+
+    // edit counter, and the value it had when each region was last changed
+    private long edits;
+    private long[] regionEdits = new long[0];
+    private int regionColumns;
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Key probe = new Key();
+    private final Rectangle reach = new Rectangle();
+
+    private static final class Key {
+        float[][] map;
+        int x, y;
+        float force, decay;
+        RadiusStrategy strategy;
+        float radius; // NaN for force and decay calls
+
+        Key set(float[][] map, int x, int y, float force, float decay, RadiusStrategy strategy, float radius) {
+            this.map = map;
+            this.x = x;
+            this.y = y;
+            this.force = force;
+            this.decay = decay;
+            this.strategy = strategy;
+            this.radius = radius;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return (map == k.map) && (x == k.x) && (y == k.y) && (Float.compare(force, k.force) == 0)
+                    && (Float.compare(decay, k.decay) == 0) && (strategy == k.strategy)
+                    && (Float.compare(radius, k.radius) == 0);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = System.identityHashCode(map);
+            h = (31 * h) + x;
+            h = (31 * h) + y;
+            h = (31 * h) + Float.floatToIntBits(force);
+            h = (31 * h) + Float.floatToIntBits(decay);
+            h = (31 * h) + Float.floatToIntBits(radius);
+            return (31 * h) + System.identityHashCode(strategy);
+        }
+    }
+
+    private static final class Entry {
+        final float[][] light;
+        final int epoch;
+        final long edits;
+        final int minX, minY, maxX, maxY;
+
+        Entry(float[][] light, int epoch, long edits, Rectangle reach) {
+            this.light = light;
+            this.epoch = epoch;
+            this.edits = edits;
+            this.minX = reach.x;
+            this.minY = reach.y;
+            this.maxX = reach.x + reach.width - 1;
+            this.maxY = reach.y + reach.height - 1;
+        }
+    }
+
+    /**
+     * @param solver the solver to cache results of
+     * @param capacity the most results to keep
+     */
+    public CachedFOV(FOVSolver solver, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.solver = solver;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > CachedFOV.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+        return lookup(resistanceMap, startx, starty, force, decay, radiusStrategy, Float.NaN);
+    }
+
+    @Override
+    public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float radius) {
+        return lookup(resistanceMap, startx, starty, 0, 0, null, radius);
+    }
+
+    // radius is NaN for force and decay calls.  Otherwise it's passed to the solver as is, since force / decay
+    // wouldn't round trip exactly, and force, decay and strategy are unused.
+    private float[][] lookup(float[][] map, int x, int y, float force, float decay, RadiusStrategy strategy, float radius) {
+        Entry entry = entries.get(probe.set(map, x, y, force, decay, strategy, radius));
+        probe.map = null;
+        if ((entry != null) && isCurrent(entry)) {
+            hits++;
+            return entry.light;
+        }
+
+        misses++;
+        boolean byRadius = !Float.isNaN(radius);
+        float[][] light = byRadius
+                ? solver.calculateFOV(map, x, y, radius)
+                : solver.calculateFOV(map, x, y, force, decay, strategy);
+        litBounds(light, x, y, reach);
+        entries.put(new Key().set(map, x, y, force, decay, strategy, radius), new Entry(light, epoch, edits, reach));
+        return light;
+    }
+
+    // the box around every lit cell and the origin, grown by a cell: a cell can only change the result if it's lit or
+    // next to a lit cell, since anything further out is already dark for some other reason
+    private static void litBounds(float[][] light, int x, int y, Rectangle box) {
+        int minX = x, minY = y, maxX = x, maxY = y;
+        for (int i = 0; i < light.length; i++) {
+            float[] column = light[i];
+            for (int j = 0; j < column.length; j++) {
+                if (column[j] <= 0) continue;
+                if (i < minX) minX = i;
+                if (i > maxX) maxX = i;
+                if (j < minY) minY = j;
+                if (j > maxY) maxY = j;
+            }
+        }
+        minX = Math.max(minX - 1, 0);
+        minY = Math.max(minY - 1, 0);
+        maxX = Math.min(maxX + 1, light.length - 1);
+        maxY = Math.min(maxY + 1, light[0].length - 1);
+        box.setBounds(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    private boolean isCurrent(Entry entry) {
+        if (entry.epoch != epoch) return false;
+        if (regionColumns == 0) return true;
+        int maxRow = Math.min(entry.maxY / REGION_SIZE, (regionEdits.length / regionColumns) - 1);
+        int maxCol = Math.min(entry.maxX / REGION_SIZE, regionColumns - 1);
+        for (int row = entry.minY / REGION_SIZE; row <= maxRow; row++) {
+            for (int col = entry.minX / REGION_SIZE; col <= maxCol; col++) {
+                if (regionEdits[(row * regionColumns) + col] > entry.edits) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Forgets every result, e.g. after loading a new level into the same arrays */
+    public void invalidate() {
+        epoch++;
+    }
+
+    /**
+     * Reports that resistances in a rectangle have changed, so results that lit any of it, or a cell next to it, are
+     * recomputed.
+     * This applies to every map the cache has seen.
+     */
+    public void markChanged(int x, int y, int w, int h) {
+        if ((w <= 0) || (h <= 0)) return;
+        int maxCol = (x + w - 1) / REGION_SIZE;
+        int maxRow = (y + h - 1) / REGION_SIZE;
+        growRegions(maxCol + 1, maxRow + 1);
+
+        edits++;
+        for (int row = Math.max(0, y) / REGION_SIZE; row <= maxRow; row++) {
+            for (int col = Math.max(0, x) / REGION_SIZE; col <= maxCol; col++) {
+                regionEdits[(row * regionColumns) + col] = edits;
+            }
+        }
+    }
+
+    /** Reports that a single cell's resistance has changed */
+    public void markChanged(int x, int y) {
+        markChanged(x, y, 1, 1);
+    }
+
+    private void growRegions(int columns, int rows) {
+        int oldRows = (regionColumns == 0) ? 0 : regionEdits.length / regionColumns;
+        if ((columns <= regionColumns) && (rows <= oldRows)) return;
+
+        int newColumns = Math.max(columns, regionColumns);
+        int newRows = Math.max(rows, oldRows);
+        long[] grown = new long[newColumns * newRows];
+        for (int row = 0; row < oldRows; row++) {
+            System.arraycopy(regionEdits, row * regionColumns, grown, row * newColumns, regionColumns);
+        }
+        regionEdits = grown;
+        regionColumns = newColumns;
+    }
+
+    /** Drops every cached result, releasing the maps they were keyed on.  Counters are kept. */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Zeroes the hit, miss and eviction counters */
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+}
@@ -0,0 +1,65 @@
+package net.fishbulb.jcod.fov;
+
+import java.util.Arrays;
+
+/**
+ * A max-heap of cell indices ordered by a float priority, for solvers that propagate light brightest-first.
+ * <p/>
+ * There's no decrease-key: a cell whose priority changes is simply pushed again, and callers skip entries whose
+ * priority no longer matches the cell's current value when they pop them.  Storage grows as needed and is kept
+ * between uses, so a queue owned by a solver stops allocating once it has seen its largest map.
+ */
+class CellQueue {
+    private int[] cells = new int[64];
+    private float[] priorities = new float[64];
+    private int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void push(int cell, float priority) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, size * 2);
+            priorities = Arrays.copyOf(priorities, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (priorities[parent] >= priority) break;
+            cells[i] = cells[parent];
+            priorities[i] = priorities[parent];
+            i = parent;
+        }
+        cells[i] = cell;
+        priorities[i] = priority;
+    }
+
+    /** Priority of the cell that pop() will return next */
+    float peekPriority() {
+        return priorities[0];
+    }
+
+    int pop() {
+        int top = cells[0];
+        int cell = cells[--size];
+        float priority = priorities[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            if ((child + 1 < size) && (priorities[child + 1] > priorities[child])) child++;
+            if (priority >= priorities[child]) break;
+            cells[i] = cells[child];
+            priorities[i] = priorities[child];
+            i = child;
+        }
+        cells[i] = cell;
+        priorities[i] = priority;
+        return top;
+    }
+}
@@ -1,6 +1,5 @@
 package net.fishbulb.jcod.fov;
 
-import com.google.common.annotations.Beta;
 import net.fishbulb.jcod.util.Elias;
 
 /**
@@ -10,25 +9,30 @@ import net.fishbulb.jcod.util.Elias;
  * 
  * For information on the sideview parameter, see the EliasLOS documentation.
  *
- * @author Eben Howard - http://squidpony.com - howard@squidpony.com
+ * Each cell an antialiased ray touches is checked with EliasLOS from the origin once, however many rays touch it, and
+ * the Bresenham lines those checks share are traced once per FOV.  Instances keep buffers between calls and are not
+ * thread safe.
  *
- * @deprecated uses the broken EliasLOS
+ * @author Eben Howard - http://squidpony.com - howard@squidpony.com
  */
-@Beta
-@Deprecated
 public class EliasFOV implements FOVSolver {
 
-    private float[][] lightMap, resistanceMap;
+    private float[][] lightMap;
+    private float[][] lineMap;//brightness of the current line, cleared after each
     private float maxRadius, force, decay;
     private int width, height;
     private RadiusStrategy rStrat;
-    private float sideview = 0.75f;
+    private final EliasLOS los;
+
+    // cells already checked with the LOS, and which of those passed
+    private BitGrid checked, visible;
 
     /**
      * Creates a solver which will use the default sideview on the internal
      * EliasLOS solver.
      */
     public EliasFOV() {
+        los = new EliasLOS();
     }
 
     /**
@@ -38,18 +42,25 @@ public class EliasFOV implements FOVSolver {
      * @param sideview
      */
     public EliasFOV(float sideview) {
-        this.sideview = sideview;
+        los = new EliasLOS(sideview);
     }
 
     @Override
     public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
-        this.resistanceMap = resistanceMap;
         width = resistanceMap.length;
         height = resistanceMap[0].length;
         lightMap = new float[width][height];
+        if ((lineMap == null) || (lineMap.length != width) || (lineMap[0].length != height)) {
+            lineMap = new float[width][height];
+            checked = new BitGrid(width, height);
+            visible = new BitGrid(width, height);
+        } else {
+            checked.clear();
+        }
         this.force = force;
         this.decay = decay;
         rStrat = radiusStrategy;
+        los.begin(resistanceMap, null, width, height, startx, starty, Float.MAX_VALUE, 0f, BasicRadiusStrategy.CIRCLE);
 
         maxRadius = force / decay;
         int left = (int) Math.max(0, startx - maxRadius - 1);
@@ -72,20 +83,31 @@ public class EliasFOV implements FOVSolver {
     }
 
     private void runLineGroup(int startx, int starty, int endx, int endy) {
-        float[][] tempMap = Elias.lightMap(startx, starty, endx, endy);
-        EliasLOS los = new EliasLOS(sideview);
-//        boolean xpositive = endx > startx;
-//        boolean ypositive = endy > starty;
-        for (int x = Math.min(startx, endx); x <= Math.max(startx, endx); x++) {
-            for (int y = Math.min(starty, endy); y <= Math.max(starty, endy); y++) {
+        Elias.lightMap(startx, starty, endx, endy, lineMap);
+
+        //antialiasing spills at most one cell past the box of the end points, and cells the line missed stay dark
+        for (int x = Math.max(0, Math.min(startx, endx) - 1); x <= Math.min(width - 1, Math.max(startx, endx) + 1); x++) {
+            for (int y = Math.max(0, Math.min(starty, endy) - 1); y <= Math.min(height - 1, Math.max(starty, endy) + 1); y++) {
+                float bright = lineMap[x][y];
+                if (bright == 0) continue;
+                lineMap[x][y] = 0;
+
                 float radius = rStrat.radius(startx, starty, x, y);
-                if (radius < maxRadius && los.isReachable(resistanceMap, startx, starty, x, y)) {
-                    lightMap[x][y] = Math.max(lightMap[x][y], tempMap[x][y] * (force - radius * decay));
+                if (radius < maxRadius && isVisible(x, y)) {
+                    lightMap[x][y] = Math.max(lightMap[x][y], bright * (force - radius * decay));
                 }
             }
         }
     }
 
+    private boolean isVisible(int x, int y) {
+        if (!checked.get(x, y)) {
+            checked.set(x, y);
+            visible.set(x, y, los.isReachable(x, y));
+        }
+        return visible.get(x, y);
+    }
+
     @Override
     public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float radius) {
         return calculateFOV(resistanceMap, startx, starty, 1, 1 / radius, BasicRadiusStrategy.CIRCLE);
@@ -1,24 +1,42 @@
 package net.fishbulb.jcod.fov;
 
-import com.google.common.annotations.Beta;
 import net.fishbulb.jcod.util.Elias;
+import net.fishbulb.jcod.util.PlotFunction;
 
-import java.awt.Point;
-import java.util.List;
+import java.util.Arrays;
 
 /**
- * A first stab at a "fuzzy" LOS using Hugo Elias's modification of Wu's algorithm.
+ * A "fuzzy" LOS using Hugo Elias's modification of Wu's algorithm.
+ * <p/>
+ * The target is reachable if some open cell on the antialiased line between the ends has a Bresenham line of sight
+ * to both of them.  Only cells closer to the start than `sideview` times the distance to the target are tried, so a
+ * sideview of 0 is plain Bresenham and larger values let lines bend further around corners.
+ * <p/>
+ * Whether a cell can be seen from the start is traced once and remembered until the start changes, so EliasFOV
+ * checking every cell from one origin only traces each of those lines once.  Instances keep that state between calls
+ * and are not thread safe.
  * <p/>
  * Portions of this code are from SquidLib
- *
- * @deprecated JCOD port of EliasLOS is seriously busted at the moment
  */
-@Beta
-@Deprecated
-public class EliasLOS implements LOSSolver {
+public class EliasLOS implements GridLOSSolver {
     private float sideview = 0.75f;
 
-    private BresenhamLOS los = new BresenhamLOS();
+    private final BresenhamLOS los = new BresenhamLOS();
+
+    private final Midpoints midpoints = new Midpoints();
+
+    // the map and origin set by begin(), read from resistanceMap or from grid when it's null
+    private float[][] resistanceMap;
+    private ResistanceGrid grid;
+    private int width, height;
+    private int originx, originy;
+    private float force, decay;
+    private RadiusStrategy radiusStrategy;
+
+    // Bresenham reachability from the origin, row-major.  A cell's answer is known when its stamp is the generation.
+    private int[] stamps = new int[0];
+    private boolean[] fromOrigin = new boolean[0];
+    private int generation;
 
     public EliasLOS() {
     }
@@ -29,29 +47,93 @@ public class EliasLOS implements LOSSolver {
 
     @Override
     public boolean isReachable(float[][] resistanceMap, int startx, int starty, int targetx, int targety, float force, float decay, RadiusStrategy radiusStrategy) {
-        List<Point> path = Elias.line(startx, starty, targetx, targety);
+        begin(resistanceMap, null, resistanceMap.length, resistanceMap[0].length, startx, starty, force, decay, radiusStrategy);
+        return isReachable(targetx, targety);
+    }
 
-        // XXX HMM this looks seriously wrong to me
-        float checkRadius = radiusStrategy.radius(startx, starty) * sideview;
+    @Override
+    public boolean isReachable(ResistanceGrid resistance, int startx, int starty, int targetx, int targety,
+                               float force, float decay, RadiusStrategy radiusStrategy) {
+        begin(null, resistance, resistance.getWidth(), resistance.getHeight(), startx, starty, force, decay, radiusStrategy);
+        return isReachable(targetx, targety);
+    }
 
-        while (!path.isEmpty()) {
-            Point p = path.remove(0);
+    @Override
+    public boolean isReachable(float[][] resistanceMap, int startx, int starty, int targetx, int targety) {
+        return isReachable(resistanceMap, startx, starty, targetx, targety, Float.MAX_VALUE, 0f, BasicRadiusStrategy.CIRCLE);
+    }
 
-            //if a non-solid midpoint on the path can see both the start and end, consider the two ends to be able to see each other
-            if (resistanceMap[p.x][p.y] < 1
-                    && radiusStrategy.radius(startx, starty, p.x, p.y) < checkRadius
-                    && los.isReachable(resistanceMap, p.x, p.y, targetx, targety, force - (radiusStrategy.radius(startx, starty, p.x, p.y) * decay), decay, radiusStrategy)
-                    && los.isReachable(resistanceMap, startx, starty, p.x, p.y, force, decay, radiusStrategy)) {
+    /** Sets the map and origin for the following calls to isReachable(targetx, targety), forgetting earlier lines */
+    void begin(float[][] resistanceMap, ResistanceGrid grid, int width, int height, int startx, int starty,
+               float force, float decay, RadiusStrategy radiusStrategy) {
+        this.resistanceMap = resistanceMap;
+        this.grid = grid;
+        this.width = width;
+        this.height = height;
+        this.originx = startx;
+        this.originy = starty;
+        this.force = force;
+        this.decay = decay;
+        this.radiusStrategy = radiusStrategy;
 
-                return true;
-            }
+        if (stamps.length < width * height) {
+            stamps = new int[width * height];
+            fromOrigin = new boolean[width * height];
+            generation = 0;
+        }
+        if (++generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
         }
-        return false;//never got to the target point
     }
 
-    @Override
-    public boolean isReachable(float[][] resistanceMap, int startx, int starty, int targetx, int targety) {
-        return isReachable(resistanceMap, startx, starty, targetx, targety, Float.MAX_VALUE, 0f, BasicRadiusStrategy.CIRCLE);
+    /** Checks a target from the origin given to begin() */
+    boolean isReachable(int targetx, int targety) {
+        // the start itself is always a usable midpoint, and needs no other line
+        if (reachableFromOrigin(targetx, targety)) return true;
+
+        midpoints.targetx = targetx;
+        midpoints.targety = targety;
+        midpoints.checkRadius = radiusStrategy.radius(originx, originy, targetx, targety) * sideview;
+        midpoints.found = false;
+        Elias.line(originx, originy, targetx, targety, midpoints);
+        return midpoints.found;
+    }
+
+    private boolean reachableFromOrigin(int x, int y) {
+        int i = (y * width) + x;
+        if (stamps[i] != generation) {
+            fromOrigin[i] = (grid != null)
+                    ? los.isReachable(grid, originx, originy, x, y, force, decay, radiusStrategy)
+                    : los.isReachable(resistanceMap, originx, originy, x, y, force, decay, radiusStrategy);
+            stamps[i] = generation;
+        }
+        return fromOrigin[i];
     }
 
+    private float resistance(int x, int y) {
+        return (grid != null) ? grid.get(x, y) : resistanceMap[x][y];
+    }
+
+    // stops the line at the first midpoint that can see both ends
+    private class Midpoints implements PlotFunction {
+        int targetx, targety;
+        float checkRadius;
+        boolean found;
+
+        @Override
+        public boolean apply(int x, int y, float val) {
+            if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) return true;
+            if ((x == originx) && (y == originy)) return true;
+
+            float radius = radiusStrategy.radius(originx, originy, x, y);
+            if ((resistance(x, y) < 1) && (radius < checkRadius) && reachableFromOrigin(x, y)) {
+                float remaining = force - (radius * decay);
+                found = (grid != null)
+                        ? los.isReachable(grid, x, y, targetx, targety, remaining, decay, radiusStrategy)
+                        : los.isReachable(resistanceMap, x, y, targetx, targety, remaining, decay, radiusStrategy);
+            }
+            return !found;
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package net.fishbulb.jcod.fov;
 
+import java.awt.Rectangle;
+
 /**
  * An Adapter which wraps a FOVSolver and allows the input and output of
  * multiple types.
@@ -20,7 +22,10 @@ package net.fishbulb.jcod.fov;
  * lit under the boolean and float systems.
  *
  * When using the boolean methods, true is equivalent to fully resistant on the
- * input and fully lit on the output.
+ * input and fully lit on the output.  If the wrapped solver is a ShadowFOV, the
+ * boolean methods run on packed bits (see BitGrid) and only touch the cells
+ * within the radius; the getters then report lit cells as fully lit, since no
+ * float light values were computed.
  *
  * Regarding scale: floating point operations have an implicit scale of 1f and
  * boolean operations have an implicit infinitely small scale making any value
@@ -34,6 +39,11 @@ public class FOVTranslator implements FOVSolver {
 
     private FOVSolver solver;
     private float[][] lightMap;//backing map for results
+    private BitGrid visible;//backing bits for results of the packed boolean path, set instead of lightMap
+
+    // scratch grids for the packed boolean path, and the cells in reach of the last calculation
+    private BitGrid scratchOpaque, scratchVisible;
+    private final Rectangle reach = new Rectangle();
 
     /**
      * Creates an empty instance. At least one FOVSolver must be added through
@@ -46,12 +56,14 @@ public class FOVTranslator implements FOVSolver {
     @Override
     public float[][] calculateFOV(float[][] map, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
         lightMap = solver.calculateFOV(map, startx, starty, force, decay, radiusStrategy);
+        visible = null;
         return lightMap;
     }
 
     @Override
     public float[][] calculateFOV(float[][] map, int startx, int starty, float radius) {
         lightMap = solver.calculateFOV(map, startx, starty, 1, 1f / radius, BasicRadiusStrategy.CIRCLE);
+        visible = null;
         return lightMap;
     }
 
@@ -77,6 +89,7 @@ public class FOVTranslator implements FOVSolver {
             }
         }
         lightMap = solver.calculateFOV(tempMap, startx, starty, force, decay, radiusStrategy);
+        visible = null;
         int[][] resultMap = new int[width][height];
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
@@ -106,6 +119,7 @@ public class FOVTranslator implements FOVSolver {
             }
         }
         lightMap = solver.calculateFOV(tempMap, startx, starty, radius);
+        visible = null;
         int[][] resultMap = new int[width][height];
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
@@ -130,6 +144,9 @@ public class FOVTranslator implements FOVSolver {
      * @return
      */
     public boolean[][] calculateFOV(boolean[][] map, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+        if (solver instanceof ShadowFOV) {
+            return calculatePacked(map, startx, starty, force, decay, radiusStrategy);
+        }
         int width = map.length;
         int height = map[0].length;
         float[][] tempMap = new float[width][height];
@@ -139,6 +156,7 @@ public class FOVTranslator implements FOVSolver {
             }
         }
         lightMap = solver.calculateFOV(tempMap, startx, starty, force, decay, radiusStrategy);
+        visible = null;
         boolean[][] resultMap = new boolean[width][height];
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
@@ -161,6 +179,9 @@ public class FOVTranslator implements FOVSolver {
      * @return
      */
     public boolean[][] calculateFOV(boolean[][] map, int startx, int starty, float radius) {
+        if (solver instanceof ShadowFOV) {
+            return calculatePacked(map, startx, starty, 1, 1f / radius, BasicRadiusStrategy.CIRCLE);
+        }
         int width = map.length;
         int height = map[0].length;
         float[][] tempMap = new float[width][height];
@@ -170,6 +191,7 @@ public class FOVTranslator implements FOVSolver {
             }
         }
         lightMap = solver.calculateFOV(tempMap, startx, starty, radius);
+        visible = null;
         boolean[][] resultMap = new boolean[width][height];
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
@@ -179,6 +201,63 @@ public class FOVTranslator implements FOVSolver {
         return resultMap;
     }
 
+    // boolean[][] calculation on packed bits, converting only the cells the ShadowFOV can reach
+    private boolean[][] calculatePacked(boolean[][] map, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+        int width = map.length;
+        int height = map[0].length;
+        if ((scratchOpaque == null) || (scratchOpaque.getWidth() != width) || (scratchOpaque.getHeight() != height)) {
+            scratchOpaque = new BitGrid(width, height);
+            scratchVisible = new BitGrid(width, height);
+        }
+
+        ShadowFOV.reach(startx, starty, force / decay, width, height, reach);
+        scratchOpaque.copyFrom(map, reach.x, reach.y, reach.width, reach.height);
+        visible = ((ShadowFOV) solver).calculateFOV(scratchOpaque, scratchVisible, startx, starty, force, decay, radiusStrategy);
+        lightMap = null;
+
+        boolean[][] resultMap = new boolean[width][height];
+        visible.copyInto(resultMap, reach.x, reach.y, reach.width, reach.height);
+        return resultMap;
+    }
+
+    /**
+     * Calculates the FOV on packed bits, where a set bit in opaque blocks all light and a set bit in the result is lit.
+     * <p/>
+     * With a ShadowFOV this never converts to floats.  Other solvers run on a float[][] copy of the opacity.
+     *
+     * @param visible the grid to write the result into, or null to allocate a new one
+     */
+    public BitGrid calculateFOV(BitGrid opaque, BitGrid visible, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+        if (solver instanceof ShadowFOV) {
+            this.visible = ((ShadowFOV) solver).calculateFOV(opaque, visible, startx, starty, force, decay, radiusStrategy);
+            lightMap = null;
+            return this.visible;
+        }
+
+        int width = opaque.getWidth();
+        int height = opaque.getHeight();
+        float[][] tempMap = new float[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                tempMap[x][y] = opaque.get(x, y) ? 1f : 0f;
+            }
+        }
+        lightMap = solver.calculateFOV(tempMap, startx, starty, force, decay, radiusStrategy);
+        this.visible = null;
+
+        if (visible == null) {
+            visible = new BitGrid(width, height);
+        } else {
+            visible.clear();
+        }
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (lightMap[x][y] > 0) visible.set(x, y);
+            }
+        }
+        return visible;
+    }
+
     /**
      * Returns the last calculated light map as a boolean 2d array.
      *
@@ -187,6 +266,9 @@ public class FOVTranslator implements FOVSolver {
      * @return
      */
     public boolean[][] getBooleanArray() {
+        if (visible != null) {
+            return visible.toArray();
+        }
         if (lightMap == null) {//make sure there's something to work with
             return null;
         }
@@ -211,6 +293,15 @@ public class FOVTranslator implements FOVSolver {
      * @return
      */
     public int[][] getIntArray(float scale) {
+        if (visible != null) {
+            int[][] retMap = new int[visible.getWidth()][visible.getHeight()];
+            for (int x = 0; x < retMap.length; x++) {
+                for (int y = 0; y < retMap[0].length; y++) {
+                    retMap[x][y] = visible.get(x, y) ? (int) scale : 0;
+                }
+            }
+            return retMap;
+        }
         if (lightMap == null) {//make sure there's something to work with
             return null;
         }
@@ -235,6 +326,7 @@ public class FOVTranslator implements FOVSolver {
      * @return
      */
     public boolean isLit(int x, int y) {
+        if (visible != null) return visible.get(x, y);
         return lightMap[x][y] > 0f;
     }
 
@@ -247,6 +339,7 @@ public class FOVTranslator implements FOVSolver {
      * @return
      */
     public int getInt(int x, int y, int scale) {
+        if (visible != null) return visible.get(x, y) ? scale : 0;
         return (int) (lightMap[x][y] * scale);
     }
 }
@@ -0,0 +1,112 @@
+package net.fishbulb.jcod.fov;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * A width x height grid of floats stored in a single row-major array, so cell (x, y) lives at (y * width) + x.
+ * <p/>
+ * Solvers index the backing array directly, which saves the pointer hop per cell that float[][] costs and walks
+ * memory in order when scanning rows.  The copy methods convert to and from the float[][] maps (indexed [x][y]) used
+ * by the rest of the FOV API.
+ */
+public class FloatGrid {
+
+    @Getter
+    protected final int width;
+
+    @Getter
+    protected final int height;
+
+    /** The backing array, shared rather than copied */
+    @Getter
+    protected final float[] cells;
+
+    public FloatGrid(int width, int height) {
+        this(width, height, new float[width * height]);
+    }
+
+    /** Wraps an existing row-major array without copying it */
+    public FloatGrid(int width, int height, float[] cells) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid grid dimensions specified (must be at least 1x1)");
+        }
+        if (cells.length != width * height) {
+            throw new IllegalArgumentException("cells must have exactly width * height elements");
+        }
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    public final int index(int x, int y) {
+        return (y * width) + x;
+    }
+
+    public final boolean contains(int x, int y) {
+        return (x >= 0) && (y >= 0) && (x < width) && (y < height);
+    }
+
+    public final float get(int x, int y) {
+        return cells[(y * width) + x];
+    }
+
+    public final void set(int x, int y, float value) {
+        cells[(y * width) + x] = value;
+    }
+
+    public void fill(float value) {
+        Arrays.fill(cells, value);
+    }
+
+    /** Fills a rectangle, which must lie within the grid */
+    public void fill(int x, int y, int w, int h, float value) {
+        for (int row = y; row < y + h; row++) {
+            int i = (row * width) + x;
+            Arrays.fill(cells, i, i + w, value);
+        }
+    }
+
+    /** Returns true if the grid has the same dimensions as the given [x][y] map */
+    public boolean sameSize(float[][] map) {
+        return (map.length == width) && (map[0].length == height);
+    }
+
+    /** Copies a whole [x][y] map of the same dimensions into this grid */
+    public void copyFrom(float[][] map) {
+        copyFrom(map, 0, 0, width, height);
+    }
+
+    /** Copies a rectangle of an [x][y] map into the same cells of this grid */
+    public void copyFrom(float[][] map, int x, int y, int w, int h) {
+        for (int col = x; col < x + w; col++) {
+            float[] column = map[col];
+            for (int row = y, i = (y * width) + col; row < y + h; row++, i += width) {
+                cells[i] = column[row];
+            }
+        }
+    }
+
+    /** Copies this grid into an [x][y] map of the same dimensions */
+    public void copyInto(float[][] map) {
+        copyInto(map, 0, 0, width, height);
+    }
+
+    /** Copies a rectangle of this grid into the same cells of an [x][y] map */
+    public void copyInto(float[][] map, int x, int y, int w, int h) {
+        for (int col = x; col < x + w; col++) {
+            float[] column = map[col];
+            for (int row = y, i = (y * width) + col; row < y + h; row++, i += width) {
+                column[row] = cells[i];
+            }
+        }
+    }
+
+    /** Returns a new [x][y] map with the contents of this grid */
+    public float[][] toArray() {
+        float[][] map = new float[width][height];
+        copyInto(map);
+        return map;
+    }
+}
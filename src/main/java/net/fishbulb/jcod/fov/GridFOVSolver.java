@@ -0,0 +1,25 @@
+package net.fishbulb.jcod.fov;
+
+/**
+ * An FOVSolver that can also work directly on flat grids, avoiding the float[][] conversions.
+ *
+ * @see FloatGrid
+ */
+public interface GridFOVSolver extends FOVSolver {
+
+    /**
+     * Calculates the Field Of View the same way as FOVSolver.calculateFOV, but reads resistances from a grid and
+     * writes into a caller-owned light grid, which must have the same dimensions.  Any light left in the grid from
+     * earlier is cleared.
+     *
+     * @param resistance the grid of cells to calculate on
+     * @param light the grid to write the result into, or null to allocate a new one
+     * @param startx the horizontal component of the starting location
+     * @param starty the vertical component of the starting location
+     * @param force the power of the ray
+     * @param decay how much the light is reduced for each whole integer step in distance
+     * @param radiusStrategy provides a means to calculate the radius as desired
+     * @return the light grid written to
+     */
+    public LightGrid calculateFOV(ResistanceGrid resistance, LightGrid light, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy);
+}
@@ -0,0 +1,14 @@
+package net.fishbulb.jcod.fov;
+
+/**
+ * A LOSSolver that can also work directly on a flat resistance grid.
+ *
+ * @see FloatGrid
+ */
+public interface GridLOSSolver extends LOSSolver {
+
+    /**
+     * Same as LOSSolver.isReachable, reading resistances from a grid.
+     */
+    public boolean isReachable(ResistanceGrid resistance, int startx, int starty, int targetx, int targety, float force, float decay, RadiusStrategy radiusStrategy);
+}
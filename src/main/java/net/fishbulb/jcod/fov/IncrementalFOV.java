@@ -0,0 +1,257 @@
+package net.fishbulb.jcod.fov;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the shadowcast FOV of many viewers up to date on a map whose cells occasionally change, such as doors opening
+ * or walls being destroyed.
+ * <p/>
+ * Each viewer remembers, for every cell within its radius, which of the eight octant scans read that cell.  A scan's
+ * result can only change if one of the cells it read changes opacity, so when a cell changes, only those octants of
+ * the viewers that read it are cast again.  A door deep in a guard's shadow costs that guard nothing at all.
+ * <p/>
+ * Results match ShadowFOV exactly: translucent cells are treated as fully transparent, and light falls off with
+ * distance the same way.  Light values are computed on demand from the octant bits rather than stored, so a viewer
+ * costs one byte per cell of its radius square.
+ */
+public class IncrementalFOV {
+
+    // the transforms of the eight octants, in the order ShadowFOV casts them: xx, xy, yx, yy
+    private static final int[][] OCTANTS = new int[8][];
+
+    static {
+        int i = 0;
+        for (Direction d : Direction.DIAGONALS) {
+            OCTANTS[i++] = new int[]{0, d.deltaX, d.deltaY, 0};
+            OCTANTS[i++] = new int[]{d.deltaX, 0, 0, d.deltaY};
+        }
+    }
+
+    /** A viewer and the octant bits of its last cast.  Created by addViewer. */
+    public static class Viewer {
+        @Getter private int x;
+        @Getter private int y;
+        @Getter private final float force;
+        @Getter private final float decay;
+        @Getter private final RadiusStrategy radiusStrategy;
+
+        private final float radius;
+        private final int reach;
+
+        // the last octant row a scan visits
+        private final int rows;
+
+        // the square of cells within reach, clipped to the map, and a bit per octant that read each of its cells
+        private int minX, minY, boxWidth, boxHeight;
+        private byte[] octants;
+
+        private Viewer(int x, int y, float force, float decay, RadiusStrategy radiusStrategy, int width, int height) {
+            this.force = force;
+            this.decay = decay;
+            this.radiusStrategy = radiusStrategy;
+            this.radius = force / decay;
+            this.reach = (int) Math.ceil(Math.min(radius, Math.max(width, height)));
+            this.rows = ShadowFOV.rows(radius, width, height);
+            place(x, y, width, height);
+        }
+
+        private void place(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            minX = Math.max(0, x - reach);
+            minY = Math.max(0, y - reach);
+            boxWidth = Math.min(width - 1, x + reach) - minX + 1;
+            boxHeight = Math.min(height - 1, y + reach) - minY + 1;
+            if ((octants == null) || (octants.length < boxWidth * boxHeight)) {
+                octants = new byte[boxWidth * boxHeight];
+            } else {
+                Arrays.fill(octants, (byte) 0);
+            }
+        }
+
+        private boolean covers(int cx, int cy) {
+            return (cx >= minX) && (cy >= minY) && (cx < minX + boxWidth) && (cy < minY + boxHeight);
+        }
+    }
+
+    @Getter
+    private final ResistanceGrid resistance;
+
+    private final List<Viewer> viewers = new ArrayList<>();
+
+    /** Number of octant scans run since creation, for measuring how much work updates are saving */
+    @Getter
+    private long octantsCast;
+
+    // state of the octant being cast
+    private float[] cells;
+    private int width, height;
+    private Viewer current;
+    private byte octantBit;
+
+    /**
+     * @param resistance the map to track.  Changes must go through setResistance so viewers are kept up to date.
+     */
+    public IncrementalFOV(ResistanceGrid resistance) {
+        this.resistance = resistance;
+        this.width = resistance.getWidth();
+        this.height = resistance.getHeight();
+    }
+
+    public List<Viewer> getViewers() {
+        return Collections.unmodifiableList(viewers);
+    }
+
+    /** Adds a viewer and casts its full FOV, with the same meaning of force, decay and strategy as ShadowFOV */
+    public Viewer addViewer(int x, int y, float force, float decay, RadiusStrategy radiusStrategy) {
+        Viewer viewer = new Viewer(x, y, force, decay, radiusStrategy, width, height);
+        viewers.add(viewer);
+        castAll(viewer);
+        return viewer;
+    }
+
+    /** Adds a viewer with a force of 1, a decay of 1 / radius and a circular radius */
+    public Viewer addViewer(int x, int y, float radius) {
+        return addViewer(x, y, 1, 1 / radius, BasicRadiusStrategy.CIRCLE);
+    }
+
+    public void removeViewer(Viewer viewer) {
+        viewers.remove(viewer);
+    }
+
+    /** Moves a viewer, which recasts its whole FOV */
+    public void moveViewer(Viewer viewer, int x, int y) {
+        viewer.place(x, y, width, height);
+        castAll(viewer);
+    }
+
+    /**
+     * Changes the resistance of a cell.  If that changes whether the cell is opaque, the octants of every viewer that
+     * read the cell are cast again.
+     *
+     * @return the number of octants recast
+     */
+    public int setResistance(int x, int y, float value) {
+        boolean wasOpaque = resistance.isOpaque(x, y);
+        resistance.set(x, y, value);
+        if (resistance.isOpaque(x, y) == wasOpaque) return 0;
+
+        int recast = 0;
+        for (Viewer viewer : viewers) {
+            if (!viewer.covers(x, y)) continue;
+            int read = viewer.octants[((y - viewer.minY) * viewer.boxWidth) + (x - viewer.minX)] & 0xff;
+            for (int octant = 0; read != 0; octant++, read >>>= 1) {
+                if ((read & 1) != 0) {
+                    cast(viewer, octant);
+                    recast++;
+                }
+            }
+        }
+        return recast;
+    }
+
+    /** Returns the viewer's light at a cell, exactly as ShadowFOV would compute it */
+    public float getLight(Viewer viewer, int x, int y) {
+        if ((x == viewer.x) && (y == viewer.y)) return viewer.force;
+        if (!viewer.covers(x, y)) return 0f;
+        if (viewer.octants[((y - viewer.minY) * viewer.boxWidth) + (x - viewer.minX)] == 0) return 0f;
+        float r = viewer.radiusStrategy.radius(x - viewer.x, y - viewer.y);
+        if (r > viewer.radius) return 0f;
+        return 1 - (viewer.decay * r / viewer.force);
+    }
+
+    public boolean isVisible(Viewer viewer, int x, int y) {
+        return getLight(viewer, x, y) > 0;
+    }
+
+    /**
+     * Writes the viewer's light into a grid the size of the map, clearing everything outside the viewer's radius.
+     *
+     * @param light the grid to write into, or null to allocate a new one
+     */
+    public LightGrid copyInto(Viewer viewer, LightGrid light) {
+        if (light == null) {
+            light = new LightGrid(width, height);
+        } else {
+            light.fill(0f);
+        }
+        for (int y = viewer.minY; y < viewer.minY + viewer.boxHeight; y++) {
+            for (int x = viewer.minX; x < viewer.minX + viewer.boxWidth; x++) {
+                light.set(x, y, getLight(viewer, x, y));
+            }
+        }
+        return light;
+    }
+
+    private void castAll(Viewer viewer) {
+        for (int octant = 0; octant < 8; octant++) {
+            cast(viewer, octant);
+        }
+    }
+
+    private void cast(Viewer viewer, int octant) {
+        byte bit = (byte) (1 << octant);
+        byte[] octants = viewer.octants;
+        for (int i = 0, n = viewer.boxWidth * viewer.boxHeight; i < n; i++) {
+            octants[i] &= ~bit;
+        }
+
+        current = viewer;
+        octantBit = bit;
+        cells = resistance.getCells();
+        int[] t = OCTANTS[octant];
+        castLight(1, 1.0f, 0.0f, t[0], t[1], t[2], t[3]);
+        cells = null;
+        current = null;
+        octantsCast++;
+    }
+
+    // ShadowFOV's castLight, recording the cells each octant reads instead of lighting them
+    private void castLight(int row, float start, float end, int xx, int xy, int yx, int yy) {
+        Viewer v = current;
+        float newStart = 0.0f;
+        if (start < end) {
+            return;
+        }
+        boolean blocked = false;
+        for (int distance = row; distance <= v.rows && !blocked; distance++) {
+            int deltaY = -distance;
+            for (int deltaX = -distance; deltaX <= 0; deltaX++) {
+                int currentX = v.x + deltaX * xx + deltaY * xy;
+                int currentY = v.y + deltaX * yx + deltaY * yy;
+                float leftSlope = (deltaX - 0.5f) / (deltaY + 0.5f);
+                float rightSlope = (deltaX + 0.5f) / (deltaY - 0.5f);
+
+                if (!(currentX >= 0 && currentY >= 0 && currentX < width && currentY < height) || start < rightSlope) {
+                    continue;
+                } else if (end > leftSlope) {
+                    break;
+                }
+
+                v.octants[((currentY - v.minY) * v.boxWidth) + (currentX - v.minX)] |= octantBit;
+                boolean wall = cells[(currentY * width) + currentX] >= 1;
+
+                if (blocked) { //previous cell was a blocking one
+                    if (wall) {//hit a wall
+                        newStart = rightSlope;
+                        continue;
+                    } else {
+                        blocked = false;
+                        start = newStart;
+                    }
+                } else {
+                    if (wall && distance < v.radius) {//hit a wall within sight line
+                        blocked = true;
+                        castLight(distance + 1, start, leftSlope, xx, xy, yx, yy);
+                        newStart = rightSlope;
+                    }
+                }
+            }
+        }
+    }
+}
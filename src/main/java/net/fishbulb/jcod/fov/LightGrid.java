@@ -0,0 +1,28 @@
+package net.fishbulb.jcod.fov;
+
+/**
+ * Per-cell light computed by an FOV solver, where 0 or less is unlit and 1 or more is fully lit.
+ *
+ * @see FloatGrid
+ */
+public class LightGrid extends FloatGrid {
+
+    public LightGrid(int width, int height) {
+        super(width, height);
+    }
+
+    public LightGrid(int width, int height, float[] cells) {
+        super(width, height, cells);
+    }
+
+    /** Returns a grid holding a copy of an [x][y] light map */
+    public static LightGrid of(float[][] lightMap) {
+        LightGrid grid = new LightGrid(lightMap.length, lightMap[0].length);
+        grid.copyFrom(lightMap);
+        return grid;
+    }
+
+    public boolean isLit(int x, int y) {
+        return cells[(y * width) + x] > 0f;
+    }
+}
@@ -0,0 +1,283 @@
+package net.fishbulb.jcod.fov;
+
+import lombok.Getter;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Adds up the colored light of many sources, such as the torches of a dungeon level, into one light map.
+ * <p/>
+ * Each light keeps the FOV it last cast, so it's only cast again when it moves, changes radius or strategy, or when
+ * the map changes within its radius.  Changing a light's color or intensity only re-adds the lights around it, which
+ * makes flickering by intensity cheap.  Lights that haven't changed cost nothing per update.
+ * <p/>
+ * The sums are rebuilt from each light's stored FOV over the areas that changed rather than adjusted by subtraction,
+ * so they don't drift no matter how long the map lives.  Channels are unbounded: two full white lights on a cell add
+ * up to 2.
+ * <p/>
+ * Changes are collected until update() is called, so any number of lights and cells can be changed per frame.
+ */
+public class Lighting {
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    private final ResistanceGrid resistance;
+
+    private final GridFOVSolver solver;
+
+    private LightGrid scratch;
+
+    // the summed light, row-major like the grids
+    private final float[] red, green, blue;
+
+    private final List<Light> lights = new ArrayList<>();
+
+    // lights changed since the last update, map areas changed since the last update, and areas to add up again
+    private final List<Light> changed = new ArrayList<>();
+    private final List<Rectangle> mapChanges = new ArrayList<>();
+    private final List<Rectangle> dirty = new ArrayList<>();
+
+    /** How many times a light's FOV has been cast, for checking that lights aren't recast needlessly */
+    @Getter
+    private int lightsCast;
+
+    /** A light source.  Created by addLight. */
+    public static class Light {
+        private final Lighting owner;
+
+        @Getter private int x;
+        @Getter private int y;
+        @Getter private float radius;
+        @Getter private RadiusStrategy radiusStrategy;
+        @Getter private float red, green, blue;
+        @Getter private float intensity = 1;
+
+        // the cells this light's FOV can reach, and its brightness on each, row-major
+        private final Rectangle box = new Rectangle();
+        private float[] brightness = new float[0];
+
+        private boolean recast, recolor;
+
+        // set once the light is removed, after which changes to it are ignored
+        private boolean detached;
+
+        private Light(Lighting owner, int x, int y, float radius, RadiusStrategy radiusStrategy, float red, float green, float blue) {
+            this.owner = owner;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            this.radiusStrategy = radiusStrategy;
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+            markRecast();
+        }
+
+        public void moveTo(int x, int y) {
+            if ((x == this.x) && (y == this.y)) return;
+            this.x = x;
+            this.y = y;
+            markRecast();
+        }
+
+        public void setRadius(float radius) {
+            if (radius == this.radius) return;
+            this.radius = radius;
+            markRecast();
+        }
+
+        public void setRadiusStrategy(RadiusStrategy radiusStrategy) {
+            if (radiusStrategy == this.radiusStrategy) return;
+            this.radiusStrategy = radiusStrategy;
+            markRecast();
+        }
+
+        public void setColor(float red, float green, float blue) {
+            if ((red == this.red) && (green == this.green) && (blue == this.blue)) return;
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+            markRecolor();
+        }
+
+        /** Scales the light's color without casting it again */
+        public void setIntensity(float intensity) {
+            if (intensity == this.intensity) return;
+            this.intensity = intensity;
+            markRecolor();
+        }
+
+        private void markRecast() {
+            if (detached) return;
+            if (!recast && !recolor) owner.changed.add(this);
+            recast = true;
+        }
+
+        private void markRecolor() {
+            if (detached) return;
+            if (!recast && !recolor) owner.changed.add(this);
+            recolor = true;
+        }
+    }
+
+    /** Lights a map using shadowcasting */
+    public Lighting(ResistanceGrid resistance) {
+        this(resistance, new ShadowFOV());
+    }
+
+    /**
+     * @param resistance the map, which is read on every cast.  Report changes to it with markChanged().
+     * @param solver the solver to cast each light with
+     */
+    public Lighting(ResistanceGrid resistance, GridFOVSolver solver) {
+        this.resistance = resistance;
+        this.solver = solver;
+        width = resistance.getWidth();
+        height = resistance.getHeight();
+        red = new float[width * height];
+        green = new float[width * height];
+        blue = new float[width * height];
+    }
+
+    /** Adds a light with a circular radius.  It shows up on the next update. */
+    public Light addLight(int x, int y, float radius, float red, float green, float blue) {
+        return addLight(x, y, radius, BasicRadiusStrategy.CIRCLE, red, green, blue);
+    }
+
+    /** Adds a light.  It shows up on the next update. */
+    public Light addLight(int x, int y, float radius, RadiusStrategy radiusStrategy, float red, float green, float blue) {
+        Light light = new Light(this, x, y, radius, radiusStrategy, red, green, blue);
+        lights.add(light);
+        return light;
+    }
+
+    /** Removes a light.  Its light goes away on the next update, and later changes to it are ignored. */
+    public void removeLight(Light light) {
+        if (!lights.remove(light)) return;
+        changed.remove(light);
+        light.detached = true;
+        light.recast = false;
+        light.recolor = false;
+        dirty.add(new Rectangle(light.box));
+    }
+
+    public List<Light> getLights() {
+        return Collections.unmodifiableList(lights);
+    }
+
+    /** Reports that resistances in a rectangle have changed, so lights reaching any of it are cast again */
+    public void markChanged(int x, int y, int w, int h) {
+        mapChanges.add(new Rectangle(x, y, w, h));
+    }
+
+    /** Reports that a single cell's resistance has changed */
+    public void markChanged(int x, int y) {
+        markChanged(x, y, 1, 1);
+    }
+
+    /** Applies every change since the last update, casting only the lights that need it */
+    public void update() {
+        for (Rectangle change : mapChanges) {
+            for (Light light : lights) {
+                if (light.box.intersects(change)) light.markRecast();
+            }
+        }
+        mapChanges.clear();
+
+        for (Light light : changed) {
+            dirty.add(new Rectangle(light.box));
+            if (light.recast) {
+                cast(light);
+                dirty.add(new Rectangle(light.box));
+            }
+            light.recast = false;
+            light.recolor = false;
+        }
+        changed.clear();
+
+        for (Rectangle area : dirty) {
+            composite(area);
+        }
+        dirty.clear();
+    }
+
+    private void cast(Light light) {
+        if (scratch == null) scratch = new LightGrid(width, height);
+        solver.calculateFOV(resistance, scratch, light.x, light.y, 1, 1 / light.radius, light.radiusStrategy);
+        lightsCast++;
+
+        Rectangle box = light.box;
+        ShadowFOV.reach(light.x, light.y, light.radius, width, height, box);
+        if (light.brightness.length < box.width * box.height) {
+            light.brightness = new float[box.width * box.height];
+        }
+        float[] cells = scratch.getCells();
+        for (int y = 0; y < box.height; y++) {
+            System.arraycopy(cells, ((box.y + y) * width) + box.x, light.brightness, y * box.width, box.width);
+        }
+    }
+
+    // adds up every light over an area from scratch
+    private void composite(Rectangle area) {
+        int minX = area.x;
+        int minY = area.y;
+        int maxX = area.x + area.width;
+        int maxY = area.y + area.height;
+        for (int y = minY; y < maxY; y++) {
+            int row = y * width;
+            Arrays.fill(red, row + minX, row + maxX, 0f);
+            Arrays.fill(green, row + minX, row + maxX, 0f);
+            Arrays.fill(blue, row + minX, row + maxX, 0f);
+        }
+
+        for (Light light : lights) {
+            Rectangle box = light.box;
+            int fromX = Math.max(minX, box.x);
+            int fromY = Math.max(minY, box.y);
+            int toX = Math.min(maxX, box.x + box.width);
+            int toY = Math.min(maxY, box.y + box.height);
+            if ((fromX >= toX) || (fromY >= toY)) continue;
+
+            float r = light.red * light.intensity;
+            float g = light.green * light.intensity;
+            float b = light.blue * light.intensity;
+            for (int y = fromY; y < toY; y++) {
+                int out = (y * width) + fromX;
+                int in = ((y - box.y) * box.width) + (fromX - box.x);
+                for (int x = fromX; x < toX; x++, out++, in++) {
+                    float bright = light.brightness[in];
+                    if (bright <= 0) continue;
+                    red[out] += bright * r;
+                    green[out] += bright * g;
+                    blue[out] += bright * b;
+                }
+            }
+        }
+    }
+
+    public float getRed(int x, int y) {
+        return red[(y * width) + x];
+    }
+
+    public float getGreen(int x, int y) {
+        return green[(y * width) + x];
+    }
+
+    public float getBlue(int x, int y) {
+        return blue[(y * width) + x];
+    }
+
+    /** True if any light reaches the cell */
+    public boolean isLit(int x, int y) {
+        int i = (y * width) + x;
+        return (red[i] > 0) || (green[i] > 0) || (blue[i] > 0);
+    }
+}
@@ -1,28 +1,182 @@
 package net.fishbulb.jcod.fov;
 
+import lombok.Getter;
 
-import com.google.common.annotations.Beta;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * This class merges the results from two or more FOVSolvers.
- * 
- * Currently a work in progress.
+ *
+ * Each child solver has a weight, used by the averaging merges, and a range that scales its radius, so for instance
+ * sight and hearing can be combined into one map even though sound carries further.  Children are run with the same
+ * start, force and strategy, and a decay divided by their range.
+ *
+ * Results are merged one child at a time into the returned map, in the order the children were added, so at most
+ * the merged map and the maps of children still running are alive at once.  Only the cells within the largest
+ * child's radius are merged; everything outside it is left at 0.
+ *
+ * With an ExecutorService the children are run in parallel, the first one on the calling thread, so each child must
+ * be a separate solver instance.
  *
  * @author Eben Howard - http://squidpony.com - howard@squidpony.com
  */
-@Beta
 public class MergedFOV implements FOVSolver {
-    
+
+    @Getter
+    private final MergeType mergeType;
+
+    private final ExecutorService executor;
+
+    private final List<Child> children = new ArrayList<>();
+
+    @Getter
     private float totalWeight;
 
+    // cells some child left unlit, for AND merges
+    private BitGrid dark;
+
+    private final Rectangle box = new Rectangle();
+
+    private static final class Child {
+        final FOVSolver solver;
+        final float weight;
+        final float range;
+
+        Child(FOVSolver solver, float weight, float range) {
+            this.solver = solver;
+            this.weight = weight;
+            this.range = range;
+        }
+    }
+
+    /** Creates a merge that runs its children one after another on the calling thread */
+    public MergedFOV(MergeType mergeType) {
+        this(mergeType, null);
+    }
+
+    /**
+     * Creates a merge that runs its children in parallel on the given executor, which it doesn't shut down.  A null
+     * executor runs them on the calling thread.
+     */
+    public MergedFOV(MergeType mergeType, ExecutorService executor) {
+        this.mergeType = mergeType;
+        this.executor = executor;
+    }
+
+    /** Adds a child solver with the given weight and the same radius as the merged FOV */
+    public MergedFOV add(FOVSolver solver, float weight) {
+        return add(solver, weight, 1);
+    }
+
+    /**
+     * Adds a child solver.
+     *
+     * @param weight how much this child counts in the averaging merges
+     * @param range what the radius is multiplied by for this child
+     */
+    public synchronized MergedFOV add(FOVSolver solver, float weight, float range) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        if (range <= 0) {
+            throw new IllegalArgumentException("range must be positive");
+        }
+        children.add(new Child(solver, weight, range));
+        totalWeight += weight;
+        return this;
+    }
+
     @Override
-    public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public synchronized float[][] calculateFOV(final float[][] resistanceMap, final int startx, final int starty, final float force, final float decay, final RadiusStrategy radiusStrategy) {
+        if (children.isEmpty()) {
+            throw new IllegalStateException("MergedFOV has no solvers to merge");
+        }
+        int width = resistanceMap.length;
+        int height = resistanceMap[0].length;
+        float[][] light = new float[width][height];
+
+        float maxRange = 0;
+        for (Child child : children) {
+            maxRange = Math.max(maxRange, child.range);
+        }
+        ShadowFOV.reach(startx, starty, force / decay * maxRange, width, height, box);
+        if (mergeType == MergeType.AND) {
+            if ((dark == null) || (dark.getWidth() != width) || (dark.getHeight() != height)) {
+                dark = new BitGrid(width, height);
+            } else {
+                dark.clear(box.x, box.y, box.width, box.height);
+            }
+        }
+
+        // submit the rest before running the first here, so they overlap
+        List<Future<float[][]>> pending = new ArrayList<>(children.size());
+        if (executor != null) {
+            for (int i = 1; i < children.size(); i++) {
+                final Child child = children.get(i);
+                pending.add(executor.submit(new Callable<float[][]>() {
+                    @Override
+                    public float[][] call() throws Exception {
+                        return child.solver.calculateFOV(resistanceMap, startx, starty, force, decay / child.range, radiusStrategy);
+                    }
+                }));
+            }
+        }
+
+        try {
+            for (int i = 0; i < children.size(); i++) {
+                Child child = children.get(i);
+                float[][] childLight = ((i == 0) || (executor == null))
+                        ? child.solver.calculateFOV(resistanceMap, startx, starty, force, decay / child.range, radiusStrategy)
+                        : pending.get(i - 1).get();
+                mergeType.merge(light, childLight, child.weight, i == 0, box, dark);
+                // let the child's map go now rather than when every child is done
+                if ((i > 0) && (executor != null)) pending.set(i - 1, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calculating FOV", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            awaitAll(pending);
+        }
+
+        mergeType.finish(light, totalWeight, box, dark);
+        return light;
+    }
+
+    // waits for every future that isn't null to finish, ignoring results and interrupts, so no child is still running
+    // when the next call reuses it.  BatchFOV does the same for its chunks.
+    static void awaitAll(List<? extends Future<?>> pending) {
+        boolean interrupted = false;
+        for (Future<?> future : pending) {
+            if (future == null) continue;
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
     }
 
     @Override
     public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float radius) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return calculateFOV(resistanceMap, startx, starty, 1, 1 / radius, BasicRadiusStrategy.CIRCLE);
     }
 
     /**
@@ -33,51 +187,109 @@ public class MergedFOV implements FOVSolver {
         /**
          * The weight will be used to average out all light maps.
          */
-        WEIGHTED_AVERAGE,
+        WEIGHTED_AVERAGE {
+            @Override
+            void merge(float[][] merged, float[][] light, float weight, boolean first, Rectangle box, BitGrid dark) {
+                int maxY = box.y + box.height;
+                for (int x = box.x; x < box.x + box.width; x++) {
+                    float[] out = merged[x];
+                    float[] in = light[x];
+                    for (int y = box.y; y < maxY; y++) {
+                        out[y] += in[y] * weight;
+                    }
+                }
+            }
+
+            @Override
+            void finish(float[][] merged, float totalWeight, Rectangle box, BitGrid dark) {
+                int maxY = box.y + box.height;
+                for (int x = box.x; x < box.x + box.width; x++) {
+                    float[] out = merged[x];
+                    for (int y = box.y; y < maxY; y++) {
+                        out[y] /= totalWeight;
+                    }
+                }
+            }
+        },
         /**
          * The weight will be used to average out all light maps, but if any
          * light map shows a cell to have no light then it will be marked as
          * unlit.
          */
-        AND,
+        AND {
+            @Override
+            void merge(float[][] merged, float[][] light, float weight, boolean first, Rectangle box, BitGrid dark) {
+                int maxY = box.y + box.height;
+                for (int x = box.x; x < box.x + box.width; x++) {
+                    float[] out = merged[x];
+                    float[] in = light[x];
+                    for (int y = box.y; y < maxY; y++) {
+                        float value = in[y];
+                        if (value <= 0) dark.set(x, y);
+                        out[y] += value * weight;
+                    }
+                }
+            }
+
+            @Override
+            void finish(float[][] merged, float totalWeight, Rectangle box, BitGrid dark) {
+                int maxY = box.y + box.height;
+                for (int x = box.x; x < box.x + box.width; x++) {
+                    float[] out = merged[x];
+                    for (int y = box.y; y < maxY; y++) {
+                        out[y] = dark.get(x, y) ? 0 : out[y] / totalWeight;
+                    }
+                }
+            }
+        },
         /**
          * The maximum light from the light maps will be used. The weight is
          * ignored.
          */
-        MAXIMUM,
+        MAXIMUM {
+            @Override
+            void merge(float[][] merged, float[][] light, float weight, boolean first, Rectangle box, BitGrid dark) {
+                int maxY = box.y + box.height;
+                for (int x = box.x; x < box.x + box.width; x++) {
+                    float[] out = merged[x];
+                    float[] in = light[x];
+                    if (first) {
+                        System.arraycopy(in, box.y, out, box.y, box.height);
+                        continue;
+                    }
+                    for (int y = box.y; y < maxY; y++) {
+                        out[y] = Math.max(out[y], in[y]);
+                    }
+                }
+            }
+        },
         /**
          * The minimum light from the light maps will be used. The weight is
          * ignored.
          */
-        MINIMUM;
-        
-        float[][] getLight(float[][][] maps){
-            int width = maps[0].length;
-            int height = maps[0][0].length;
-            float[][] result = new float[width][height];
-            
-            for(int z = 0;z<maps.length;z++){
-                for(int x = 0;x<width;x++){
-                    for(int y = 0;y<height;y++){
-                        switch (this){
-                            case WEIGHTED_AVERAGE:
-                               
-                                break;
-                            case AND:
-                                
-                                break;
-                            case MAXIMUM:
-                                
-                                break;
-                            case MINIMUM: 
-                               
-                                break;
-                        }
+        MINIMUM {
+            @Override
+            void merge(float[][] merged, float[][] light, float weight, boolean first, Rectangle box, BitGrid dark) {
+                int maxY = box.y + box.height;
+                for (int x = box.x; x < box.x + box.width; x++) {
+                    float[] out = merged[x];
+                    float[] in = light[x];
+                    if (first) {
+                        System.arraycopy(in, box.y, out, box.y, box.height);
+                        continue;
+                    }
+                    for (int y = box.y; y < maxY; y++) {
+                        out[y] = Math.min(out[y], in[y]);
                     }
                 }
             }
-            
-            return result;
+        };
+
+        // folds one child's light into the merged map, within box
+        abstract void merge(float[][] merged, float[][] light, float weight, boolean first, Rectangle box, BitGrid dark);
+
+        // turns the merged sums into averages once every child is in
+        void finish(float[][] merged, float totalWeight, Rectangle box, BitGrid dark) {
         }
     }
 }
@@ -1,51 +1,49 @@
 package net.fishbulb.jcod.fov;
 
 
-import com.google.common.annotations.Beta;
+import java.awt.Rectangle;
 
 /**
  * Simple raytracing algorithm for Field of View. In large areas will be
  * relatively inefficient due to repeated visiting of some cells.
  *
- * Tracing is done from four points near the corners of the cells. The line
- * between points is then traversed to find what cells are intersected. Once the
- * traversal hits an opaque cell, runs out of light (based on decay), or reaches
- * the set radius, that walk is terminated.
+ * Rays are cast from the center of the start cell and from points near its
+ * corners toward every cell on the edge of the radius. Each ray is walked with
+ * exact grid traversal (Amanatides and Woo), visiting every cell it passes
+ * through once. Once the ray hits an opaque cell, runs out of light (based on
+ * decay), or leaves the radius or the map, that walk is terminated.
  *
+ * A cell gets the force of the ray, reduced by the resistance of every cell
+ * the ray passed through before it, less decay times its distance from the
+ * start. Solid objects are lit if the ray reaches them, so a solid object at
+ * the edge of vision will not be lit if a transparent object in the same cell
+ * would not be lit.
  *
- * Light will decay, with solid objects being lit if there is a lit cell next to
- * them in the direction of the source point. Such objects will be lit according
- * to the decay so a solid object at the edge of vision will not be lit if a
- * transparent object in the same cell would not be lit.
- * 
- * Currently a work in progress.
+ * Performs bounds checking so edges are not required to be opaque.
  *
  * @author Eben Howard - http://squidpony.com - howard@squidpony.com
  */
-@Beta
 public class RayCastingFOV implements FOVSolver {
 
     private float gap = 0.4f;//how much gap to leave from the edges when tracing rays
-    private float step = 0.1f;//the size of step to take when walking out rays
     private float[][] lightMap;
     private float[][] map;
-    private float decay, force, fx, fy;
-    private int width, height;
+    private float decay, force;
+    private int startx, starty;
     private RadiusStrategy rStrat;
+    private final Rectangle box = new Rectangle();
 
     /**
      * Builds a new ray tracing fov solver.
      *
-     * @param step the length along the ray to traverse in each step
      * @param gap the offset from the center the lines will be traced
      */
-    public RayCastingFOV(float step, float gap) {
-        this.step = step;
+    public RayCastingFOV(float gap) {
         this.gap = gap;
     }
 
     /**
-     * Builds a new ray tracing fov solver with the default step size.
+     * Builds a new ray tracing fov solver with the default gap.
      */
     public RayCastingFOV() {
     }
@@ -55,92 +53,95 @@ public class RayCastingFOV implements FOVSolver {
         this.map = resistanceMap;
         this.force = force;
         this.decay = decay;
-        this.fx = startx + 0.5f;
-        this.fy = starty + 0.5f;
+        this.startx = startx;
+        this.starty = starty;
         this.rStrat = radiusStrategy;
-        width = resistanceMap.length;
-        height = resistanceMap[0].length;
+        int width = resistanceMap.length;
+        int height = resistanceMap[0].length;
         lightMap = new float[width][height];
 
-        float maxRadius = force / decay + 1;
-
-        int left = (int) Math.max(0, startx - maxRadius);
-        int right = (int) Math.min(width - 1, startx + maxRadius);
-        int top = (int) Math.max(0, starty - maxRadius);
-        int bottom = (int) Math.min(height - 1, starty + maxRadius);
+        ShadowFOV.reach(startx, starty, force / decay, width, height, box);
+        int left = box.x;
+        int right = box.x + box.width - 1;
+        int top = box.y;
+        int bottom = box.y + box.height - 1;
 
         lightMap[startx][starty] = force;
 
         //run rays out to edges
         for (int x = left; x <= right; x++) {
-            runLineGroup(fx, fy, x, top);
-            runLineGroup(fx, fy, x, bottom);
+            runLineGroup(x, top);
+            runLineGroup(x, bottom);
         }
         for (int y = top; y <= bottom; y++) {
-            runLineGroup(fx, fy, left, y);
-            runLineGroup(fx, fy, right, y);
+            runLineGroup(left, y);
+            runLineGroup(right, y);
         }
 
-        return lightMap;
+        float[][] result = lightMap;
+        this.lightMap = null;
+        this.map = null;
+        return result;
     }
 
     /**
      * Runs rays from approximately the corners of the cells. This reduces
      * artifacts in the results.
-     *
-     * @param startx
-     * @param starty
-     * @param endx
-     * @param endy
      */
-    private void runLineGroup(float startx, float starty, int endx, int endy) {
-
-        //build up arrays of points to run
-        float[] x1 = {startx, startx - gap, startx + gap},
-                x2 = {endx + 0.5f},
-                y1 = {starty, starty - gap, starty + gap},
-                y2 = {endy + 0.5f};
-
-        for (int i = 0; i < x1.length; i++) {
-            for (int j = 0; j < y1.length; j++) {
-                for (int k = 0; k < x2.length; k++) {
-                    for (int f = 0; f < y2.length; f++) {
-                        double angle = Math.atan2(y2[f] - y1[j], x2[k] - x1[i]);
-                        runLine(x1[i], y1[j], angle, force);
-                    }
-                }
+    private void runLineGroup(int endx, int endy) {
+        float fx = startx + 0.5f;
+        float fy = starty + 0.5f;
+        float[] x1 = {fx, fx - gap, fx + gap},
+                y1 = {fy, fy - gap, fy + gap};
+
+        for (float x : x1) {
+            for (float y : y1) {
+                runLine(x, y, endx + 0.5f - x, endy + 0.5f - y);
             }
         }
     }
 
     /**
-     * Follows the line and lights each transparent point along the path.
-     *
-     * @param x
-     * @param y
-     * @param angle
-     * @return true if end point reached
+     * Follows the ray from x, y in direction dx, dy through every cell it
+     * crosses, lighting each until it is stopped.
      */
-    private void runLine(float x, float y, double angle, float currentLight) {
-        if (currentLight <= 0) {
-            return;//reached edge of vision
-        }
-
-        int x2 = (int) x;
-        int y2 = (int) y;
-        lightMap[x2][y2] = Math.max(lightMap[x2][y2], currentLight);
-        if (map[x2][y2] < 1f) {
-            float nextX = x + step * (float) Math.cos(angle);
-            float nextY = y + step * (float) Math.sin(angle);
-            float bright = currentLight;//start with current amount of light
-            if (x2 != (int) nextX || y2 != (int) nextY) {//only change light level if actually moving out of the square
-                if (x2 != (int) fx || y2 != (int) fy) {//make sure not on starting point
-                    float distance = rStrat.radius(x2, y2, (int) nextX, (int) nextY);
-                    bright -= decay * distance;
-                    bright = bright * (1 - map[x2][y2]);//decrease it by the resistance of the cell
-                }
+    private void runLine(float x, float y, float dx, float dy) {
+        if ((dx == 0) && (dy == 0)) return;
+
+        int cellX = startx;
+        int cellY = starty;
+        int stepX = (dx > 0) ? 1 : (dx < 0) ? -1 : 0;
+        int stepY = (dy > 0) ? 1 : (dy < 0) ? -1 : 0;
+
+        // how far along the ray one cell is on each axis, and where the ray crosses the next cell edge
+        float deltaX = (dx == 0) ? Float.POSITIVE_INFINITY : Math.abs(1 / dx);
+        float deltaY = (dy == 0) ? Float.POSITIVE_INFINITY : Math.abs(1 / dy);
+        float maxX = (dx > 0) ? (cellX + 1 - x) * deltaX : (dx < 0) ? (x - cellX) * deltaX : Float.POSITIVE_INFINITY;
+        float maxY = (dy > 0) ? (cellY + 1 - y) * deltaY : (dy < 0) ? (y - cellY) * deltaY : Float.POSITIVE_INFINITY;
+
+        float currentForce = force;
+        while (true) {
+            if (maxX < maxY) {
+                cellX += stepX;
+                maxX += deltaX;
+            } else if (maxY < maxX) {
+                cellY += stepY;
+                maxY += deltaY;
+            } else {//passing exactly through a corner
+                cellX += stepX;
+                cellY += stepY;
+                maxX += deltaX;
+                maxY += deltaY;
             }
-            runLine(nextX, nextY, angle, bright);
+            if (!box.contains(cellX, cellY)) return;
+
+            float bright = currentForce - decay * rStrat.radius(startx, starty, cellX, cellY);
+            if (bright <= 0) return;//reached edge of vision
+            lightMap[cellX][cellY] = Math.max(lightMap[cellX][cellY], bright);
+
+            float resistance = map[cellX][cellY];
+            if (resistance >= 1f) return;
+            currentForce *= (1 - resistance);//decrease it by the resistance of the cell
         }
     }
 
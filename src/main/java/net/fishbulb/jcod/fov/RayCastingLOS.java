@@ -1,58 +1,45 @@
 package net.fishbulb.jcod.fov;
 
-import com.google.common.annotations.Beta;
-
-import java.awt.Point;
-import java.util.LinkedList;
-import java.util.Queue;
+import static net.fishbulb.jcod.util.PlotAlgorithms.DDA;
 
 /**
- * Uses a series of rays internal to the start and end point to determine
- * visibility.
+ * Casts a single ray between the centers of the start and end cells, visiting every cell it passes through exactly
+ * once (see PlotAlgorithms.DDA).  Unlike Bresenham, a ray that crosses two cells within a column checks both, so it
+ * won't see through a wall that a slanted line only grazes.  Force, decay and resistance are applied the same way as
+ * BresenhamLOS.
  *
  * @author Eben Howard - http://squidpony.com - howard@squidpony.com
  */
-@Beta
-public class RayCastingLOS implements LOSSolver {
+public class RayCastingLOS implements GridLOSSolver {
 
-    Queue<Point> path;
-    private float gap = 0.4f;//how much gap to leave from the edges when tracing rays
-    private float step = 0.1f;//the size of step to take when walking out rays
+    public RayCastingLOS() {
+    }
 
     /**
-     * Creates a new instance of this solver which uses the provided step
-     * distance and gap distance when performing calculations.
+     * Creates a solver.  Rays are traced exactly, so there's no step or gap to set.
      *
-     * @param step
-     * @param gap
+     * @deprecated the step and gap are ignored; use the no-argument constructor
      */
+    @Deprecated
     public RayCastingLOS(float step, float gap) {
-        this.step = step;
-        this.gap = gap;
-    }
-
-    /**
-     * Creates an instance of this solver which uses the default gap and step.
-     */
-    public RayCastingLOS() {
     }
 
     @Override
     public boolean isReachable(float[][] resistanceMap, int startx, int starty, int targetx, int targety, float force, float decay, RadiusStrategy radiusStrategy) {
-        path = new LinkedList<>();
-        float maxRadius = force / decay;
-        float x1 = startx + 0.5f;
-        float y1 = starty + 0.5f;
-        float x2 = targetx + 0.5f;
-        float y2 = targety + 0.5f;
-
+        BasicLOSFunction solver = new BasicLOSFunction(resistanceMap, startx, starty, force, decay, radiusStrategy);
+        DDA.apply(startx, starty, targetx, targety, solver);
+        return solver.isReachable();
+    }
 
-        double angle = Math.atan2(y2 - y1, x2 - x1);
-        return false;
+    @Override
+    public boolean isReachable(ResistanceGrid resistance, int startx, int starty, int targetx, int targety, float force, float decay, RadiusStrategy radiusStrategy) {
+        BasicLOSFunction solver = new BasicLOSFunction(resistance, startx, starty, force, decay, radiusStrategy);
+        DDA.apply(startx, starty, targetx, targety, solver);
+        return solver.isReachable();
     }
 
     @Override
     public boolean isReachable(float[][] resistanceMap, int startx, int starty, int targetx, int targety) {
-        return isReachable(resistanceMap, startx, starty, targetx, targety, 1, 0, BasicRadiusStrategy.CIRCLE);
+        return isReachable(resistanceMap, startx, starty, targetx, targety, Float.MAX_VALUE, 0f, BasicRadiusStrategy.CIRCLE);
     }
 }
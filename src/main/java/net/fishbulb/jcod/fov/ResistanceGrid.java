@@ -0,0 +1,28 @@
+package net.fishbulb.jcod.fov;
+
+/**
+ * Per-cell resistance for the FOV and LOS solvers, where 0 lets everything through and 1 or more blocks completely.
+ *
+ * @see FloatGrid
+ */
+public class ResistanceGrid extends FloatGrid {
+
+    public ResistanceGrid(int width, int height) {
+        super(width, height);
+    }
+
+    public ResistanceGrid(int width, int height, float[] cells) {
+        super(width, height, cells);
+    }
+
+    /** Returns a grid holding a copy of an [x][y] resistance map */
+    public static ResistanceGrid of(float[][] resistanceMap) {
+        ResistanceGrid grid = new ResistanceGrid(resistanceMap.length, resistanceMap[0].length);
+        grid.copyFrom(resistanceMap);
+        return grid;
+    }
+
+    public boolean isOpaque(int x, int y) {
+        return cells[(y * width) + x] >= 1f;
+    }
+}
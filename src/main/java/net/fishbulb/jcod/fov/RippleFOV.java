@@ -3,23 +3,43 @@ package net.fishbulb.jcod.fov;
 
 import com.google.common.annotations.Beta;
 
+import java.awt.Rectangle;
+import java.util.Arrays;
+
 /**
  * Performs FOV by pushing values outwards from the source location. It will
  * only go around corners slightly.
  *
  * This algorithm does perform bounds checking.
  *
+ * Light is spread brightest-first from a priority queue rather than by
+ * recursion, so large radii can't overflow the stack.
+ *
+ * As with ShadowFOV, passing the light grid from the previous call only
+ * clears the cells within that call's radius, and float[][] calls run on
+ * reused grids, copying only the cells within reach in and out.
+ *
  * @author Eben Howard - http://squidpony.com - howard@squidpony.com
  */
 @Beta
-public class RippleFOV implements FOVSolver {
+public class RippleFOV implements GridFOVSolver {
 
-    private float[][] lightMap;
-    private float[][] map;
-    private boolean[][] indirect;//marks when a tile is only indirectly lit
+    private float[] lightMap;
+    private float[] map;
+    private boolean[] indirect;//marks when a tile is only indirectly lit
     private float radius, decay;
     private int startx, starty, width = 1, height = 1;
     private RadiusStrategy rStrat;
+    private final CellQueue queue = new CellQueue();
+
+    // the light grid written by the last call, and the cells it (and indirect) may have had set
+    private LightGrid lastLight;
+    private final Rectangle lit = new Rectangle();
+
+    // float[][] calls are run on these, copying only the cells within reach in and out
+    private ResistanceGrid scratchResistance;
+    private LightGrid scratchLight;
+    private final Rectangle arrayReach = new Rectangle();
 
     public RippleFOV() {
     }
@@ -33,10 +53,10 @@ public class RippleFOV implements FOVSolver {
      */
     private float getNearLight(int x, int y) {
         if (Math.abs(startx - x) <= 1 && Math.abs(starty - y) <= 1) {//if next to start cell, get full light
-            return lightMap[startx][starty];
+            return lightMap[(starty * width) + startx];
         }
 
-        if (indirect[x][y]) {
+        if (indirect[(y * width) + x]) {
             return 0f;//no light if this one was only indirectly lit
         }
 
@@ -53,7 +73,7 @@ public class RippleFOV implements FOVSolver {
         y2 = Math.max(0, y2);
         y2 = Math.min(height - 1, y2);
 
-        if (map[x2][y2] < 1f && map[x][y2] >= 1f && map[x2][y] >= 1f) {
+        if (map[(y2 * width) + x2] < 1f && map[(y2 * width) + x] >= 1f && map[(y * width) + x2] >= 1f) {
             corner = true;
         }
 
@@ -61,8 +81,8 @@ public class RippleFOV implements FOVSolver {
 
         //find largest emmitted light in direction of source
         float light = 0f;
-        if (!indirect[x2][y2] && map[x2][y2] < 1f && lightMap[x2][y2] > 0) {
-            light = Math.max(light, lightMap[x2][y2] * (1 - map[x2][y2]));
+        if (!indirect[(y2 * width) + x2] && map[(y2 * width) + x2] < 1f && lightMap[(y2 * width) + x2] > 0) {
+            light = Math.max(light, lightMap[(y2 * width) + x2] * (1 - map[(y2 * width) + x2]));
             mainLit = true;
         }
 
@@ -73,12 +93,12 @@ public class RippleFOV implements FOVSolver {
             int dy = y + (int) Math.signum(y - starty);//move one step further away from the source
             dy = Math.max(dy, 0);
             dy = Math.min(dy, height - 1);
-            if (!indirect[dx2][dy] && map[dx2][dy] < 1f && lightMap[dx2][dy] > 0) {
-                light = Math.max(light, lightMap[dx2][dy] * (1 - map[dx2][dy]));
+            if (!indirect[(dy * width) + dx2] && map[(dy * width) + dx2] < 1f && lightMap[(dy * width) + dx2] > 0) {
+                light = Math.max(light, lightMap[(dy * width) + dx2] * (1 - map[(dy * width) + dx2]));
                 sideALit = true;
             }
-            if (!indirect[dx1][dy] && map[dx1][dy] < 1f && lightMap[dx1][dy] > 0) {
-                light = Math.max(light, lightMap[dx1][dy] * (1 - map[dx1][dy]));
+            if (!indirect[(dy * width) + dx1] && map[(dy * width) + dx1] < 1f && lightMap[(dy * width) + dx1] > 0) {
+                light = Math.max(light, lightMap[(dy * width) + dx1] * (1 - map[(dy * width) + dx1]));
                 sideBLit = true;
             }
         } else if (y2 == y) {//add one up and one down
@@ -87,30 +107,30 @@ public class RippleFOV implements FOVSolver {
             int dx = x + (int) Math.signum(x - startx);//move one step further away from the source
             dx = Math.max(dx, 0);
             dx = Math.min(dx, width - 1);
-            if (!indirect[dx][dy1] && map[dx][dy1] < 1f && lightMap[dx][dy1] > 0) {
-                light = Math.max(light, lightMap[dx][dy1] * (1 - map[dx][dy1]));
+            if (!indirect[(dy1 * width) + dx] && map[(dy1 * width) + dx] < 1f && lightMap[(dy1 * width) + dx] > 0) {
+                light = Math.max(light, lightMap[(dy1 * width) + dx] * (1 - map[(dy1 * width) + dx]));
                 sideALit = true;
             }
-            if (!indirect[dx][dy2] && map[dx][dy2] < 1f && lightMap[dx][dy2] > 0) {
-                light = Math.max(light, lightMap[dx][dy2] * (1 - map[dx][dy2]));
+            if (!indirect[(dy2 * width) + dx] && map[(dy2 * width) + dx] < 1f && lightMap[(dy2 * width) + dx] > 0) {
+                light = Math.max(light, lightMap[(dy2 * width) + dx] * (1 - map[(dy2 * width) + dx]));
                 sideBLit = true;
             }
         } else {
-            if (!indirect[x2][y] && xDominance > 0 && map[x2][y] < 1f && lightMap[x2][y] > 0) {
-                float tempLight = lightMap[x2][y];
+            if (!indirect[(y * width) + x2] && xDominance > 0 && map[(y * width) + x2] < 1f && lightMap[(y * width) + x2] > 0) {
+                float tempLight = lightMap[(y * width) + x2];
                 if (tempLight > 0) {
-                    light = Math.max(light, tempLight * (1 - map[x2][y]));
+                    light = Math.max(light, tempLight * (1 - map[(y * width) + x2]));
                     sideALit = true;
                 }
-            } else if (!indirect[x][y2] && xDominance < 0 && map[x][y2] < 1f && lightMap[x][y2] > 0) {
-                float tempLight = lightMap[x][y2];
+            } else if (!indirect[(y2 * width) + x] && xDominance < 0 && map[(y2 * width) + x] < 1f && lightMap[(y2 * width) + x] > 0) {
+                float tempLight = lightMap[(y2 * width) + x];
                 if (tempLight > 0) {
-                    light = Math.max(light, tempLight * (1 - map[x][y2]));
+                    light = Math.max(light, tempLight * (1 - map[(y2 * width) + x]));
                     sideBLit = true;
                 }
-            } else if (!indirect[x2][y2] && xDominance == 0 && (map[x2][y2] < 1f || (map[x][y2] < 1f && map[x2][y] < 1f))) {//on a diagonal 
-                float tempLight = Math.max(lightMap[x2][y2] * (1 - map[x2][y2]),
-                        Math.max(lightMap[x2][y] * (1 - map[x2][y]), lightMap[x][y2] * (1 - map[x][y2])));
+            } else if (!indirect[(y2 * width) + x2] && xDominance == 0 && (map[(y2 * width) + x2] < 1f || (map[(y2 * width) + x] < 1f && map[(y * width) + x2] < 1f))) {//on a diagonal 
+                float tempLight = Math.max(lightMap[(y2 * width) + x2] * (1 - map[(y2 * width) + x2]),
+                        Math.max(lightMap[(y * width) + x2] * (1 - map[(y * width) + x2]), lightMap[(y2 * width) + x] * (1 - map[(y2 * width) + x])));
                 if (tempLight > 0) {
                     light = Math.max(light, tempLight);
                     mainLit = true;//really it might be that both sides are lit, but that counts the same
@@ -123,7 +143,7 @@ public class RippleFOV implements FOVSolver {
         if (mainLit || (sideALit && sideBLit) || corner) {
             killLight = false;
             if (!mainLit) {
-                indirect[x][y] = true;
+                indirect[(y * width) + x] = true;
             }
         }
         if (killLight) {//not lit at all counts as indirectly lit
@@ -136,52 +156,95 @@ public class RippleFOV implements FOVSolver {
 
     @Override
     public float[][] calculateFOV(float[][] map, int startx, int starty, float force, float decay, RadiusStrategy rStrat) {
-        this.map = map;
+        if ((scratchResistance == null) || !scratchResistance.sameSize(map)) {
+            scratchResistance = new ResistanceGrid(map.length, map[0].length);
+            scratchLight = new LightGrid(map.length, map[0].length);
+        }
+
+        // light stays within the radius, but the cells one step past it are read
+        ShadowFOV.reach(startx, starty, force / decay + 1, map.length, map[0].length, arrayReach);
+        scratchResistance.copyFrom(map, arrayReach.x, arrayReach.y, arrayReach.width, arrayReach.height);
+        calculateFOV(scratchResistance, scratchLight, startx, starty, force, decay, rStrat);
+        float[][] lightMap = new float[map.length][map[0].length];
+        scratchLight.copyInto(lightMap, arrayReach.x, arrayReach.y, arrayReach.width, arrayReach.height);
+        return lightMap;
+    }
+
+    @Override
+    public LightGrid calculateFOV(ResistanceGrid resistance, LightGrid light, int startx, int starty, float force, float decay, RadiusStrategy rStrat) {
+        if (light == null) {
+            light = new LightGrid(resistance.getWidth(), resistance.getHeight());
+            lastLight = light;
+            lit.setBounds(0, 0, 0, 0);
+        } else if ((light.getWidth() != resistance.getWidth()) || (light.getHeight() != resistance.getHeight())) {
+            throw new IllegalArgumentException("light must have the same dimensions as resistance");
+        }
+
+        if (resistance.getWidth() != width || resistance.getHeight() != height || indirect == null) {
+            width = resistance.getWidth();
+            height = resistance.getHeight();
+            indirect = new boolean[width * height];
+        } else {
+            for (int y = lit.y; y < lit.y + lit.height; y++) {
+                Arrays.fill(indirect, (y * width) + lit.x, (y * width) + lit.x + lit.width, false);
+            }
+        }
+
+        if (light == lastLight) {
+            light.fill(lit.x, lit.y, lit.width, lit.height, 0f);//mark as unlit
+        } else {
+            light.fill(0f);
+            lastLight = light;
+        }
+
+        this.map = resistance.getCells();
+        this.lightMap = light.getCells();
         this.decay = decay;
         this.startx = startx;
         this.starty = starty;
         this.rStrat = rStrat;
         radius = force / decay;//assume worst case of no resistance in tiles
+        ShadowFOV.reach(startx, starty, radius, width, height, lit);
 
-        if (map.length != width || map[0].length != height) {
-            width = map.length;
-            height = map[0].length;
-            lightMap = new float[width][height];
-            indirect = new boolean[width][height];
-        } else {
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    lightMap[x][y] = 0f;//mark as unlit
-                    indirect[x][y] = false;
-                }
-            }
-        }
-
-        lightMap[startx][starty] = force;//make the starting space full power
+        lightMap[(starty * width) + startx] = force;//make the starting space full power
 
         lightSurroundings(startx, starty);
 
-        return lightMap;
+        this.map = null;
+        this.lightMap = null;
+        return light;
     }
 
+    // Spreads light outwards brightest-first, so most cells are settled by the first light that reaches them.  Cells
+    // are queued again whenever their light goes up, and stale queue entries are skipped.
     private void lightSurroundings(int x, int y) {
-        if (lightMap[x][y] <= 0 || indirect[x][y]) {
-            return;//no light to spread
-        }
+        queue.clear();
+        queue.push((y * width) + x, lightMap[(y * width) + x]);
 
-        for (int dx = x - 1; dx <= x + 1; dx++) {
-            for (int dy = y - 1; dy <= y + 1; dy++) {
-                //ensure in bounds
-                if (dx < 0 || dx >= width || dy < 0 || dy >= height) {
-                    continue;
-                }
+        while (!queue.isEmpty()) {
+            float queued = queue.peekPriority();
+            int i = queue.pop();
+            if (lightMap[i] != queued || lightMap[i] <= 0 || indirect[i]) {
+                continue;//stale entry or no light to spread
+            }
+            x = i % width;
+            y = i / width;
+
+            for (int dx = x - 1; dx <= x + 1; dx++) {
+                for (int dy = y - 1; dy <= y + 1; dy++) {
+                    //ensure in bounds
+                    if (dx < 0 || dx >= width || dy < 0 || dy >= height) {
+                        continue;
+                    }
 
-                double r = rStrat.radius(startx, starty, dx, dy);
-                if (r <= radius) {
-                    float surroundingLight = getNearLight(dx, dy);
-                    if (lightMap[dx][dy] < surroundingLight) {
-                        lightMap[dx][dy] = surroundingLight;
-                        lightSurroundings(dx, dy);//redo neighbors since this one's light changed
+                    double r = rStrat.radius(startx, starty, dx, dy);
+                    if (r <= radius) {
+                        float surroundingLight = getNearLight(dx, dy);
+                        int d = (dy * width) + dx;
+                        if (lightMap[d] < surroundingLight) {
+                            lightMap[d] = surroundingLight;
+                            queue.push(d, surroundingLight);//redo neighbors since this one's light changed
+                        }
                     }
                 }
             }
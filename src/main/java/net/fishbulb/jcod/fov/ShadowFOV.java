@@ -1,5 +1,7 @@
 package net.fishbulb.jcod.fov;
 
+import java.awt.Rectangle;
+import java.util.Arrays;
 
 /**
  * Recursive shadowcasting FOV. Uses currentForce * decay for the radius calculation
@@ -7,37 +9,207 @@ package net.fishbulb.jcod.fov;
  *
  * Performs bounds checking so edges are not required to be opaque.
  *
+ * The overloads taking a lightMap write into a caller-owned buffer instead of allocating one.  When the same buffer
+ * is passed again, only the square covered by the previous call's radius is cleared, so the cost of a call depends on
+ * the radius rather than the size of the map.  The same goes for light grids.
+ *
+ * When only "opaque or not" and "visible or not" matter, the BitGrid overload reads packed opacity bits and writes
+ * packed visibility bits, with no float maps involved.  A cell is visible exactly when the float version would light
+ * it above 0.
+ *
  * @author Eben Howard - http://squidpony.com - howard@squidpony.com
  */
-public class ShadowFOV implements FOVSolver {
+public class ShadowFOV implements GridFOVSolver {
 
     private int width, height, startx, starty;
-    private float[][] lightMap;
-    private float[][] resistanceMap;
+    private float[] lightMap;
+    private float[] resistanceMap;
+
+    // set instead of lightMap and resistanceMap when running on bits
+    private long[] opaqueWords;
+    private long[] visibleWords;
+    private int wordsPerRow;
     private float force, decay, radius;
     private RadiusStrategy rStrat;
 
+    // the last row castLight visits, which is less than the radius when the map ends first
+    private int rows;
+
+    // the buffers written by the last calls, and the cells each may have had lit
+    private LightGrid lastLight;
+    private final Rectangle gridLit = new Rectangle();
+    private float[][] lastLightMap;
+    private final Rectangle arrayLit = new Rectangle();
+    private BitGrid lastVisible;
+    private final Rectangle bitsLit = new Rectangle();
+
+    // float[][] calls are run on these, copying only the cells within reach in and out
+    private ResistanceGrid scratchResistance;
+    private LightGrid scratchLight;
+
     @Override
     public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy rStrat) {
+        float[][] lightMap = new float[resistanceMap.length][resistanceMap[0].length];
+        // a fresh buffer is already clear
+        lastLightMap = lightMap;
+        arrayLit.setBounds(0, 0, 0, 0);
+        return calculateFOV(resistanceMap, lightMap, startx, starty, force, decay, rStrat);
+    }
+
+    /**
+     * Calculates the FOV into lightMap, which must have the same dimensions as resistanceMap, and returns it.
+     * <p/>
+     * If lightMap is the buffer this solver wrote on its previous call, only the cells lit by that call are cleared.
+     * Any other buffer is cleared completely, so the caller mustn't write into the buffer between calls if it wants the
+     * cheap path.
+     */
+    public float[][] calculateFOV(float[][] resistanceMap, float[][] lightMap, int startx, int starty, float force, float decay, RadiusStrategy rStrat) {
+        if ((lightMap.length != resistanceMap.length) || (lightMap[0].length != resistanceMap[0].length)) {
+            throw new IllegalArgumentException("lightMap must have the same dimensions as resistanceMap");
+        }
+        if ((scratchResistance == null) || !scratchResistance.sameSize(resistanceMap)) {
+            scratchResistance = new ResistanceGrid(resistanceMap.length, resistanceMap[0].length);
+            scratchLight = new LightGrid(resistanceMap.length, resistanceMap[0].length);
+        }
+
+        if (lightMap == lastLightMap) {
+            for (int x = arrayLit.x; x < arrayLit.x + arrayLit.width; x++) {
+                Arrays.fill(lightMap[x], arrayLit.y, arrayLit.y + arrayLit.height, 0f);
+            }
+        } else {
+            for (float[] column : lightMap) {
+                Arrays.fill(column, 0f);
+            }
+            lastLightMap = lightMap;
+        }
+
+        reach(startx, starty, force / decay, lightMap.length, lightMap[0].length, arrayLit);
+        scratchResistance.copyFrom(resistanceMap, arrayLit.x, arrayLit.y, arrayLit.width, arrayLit.height);
+        calculateFOV(scratchResistance, scratchLight, startx, starty, force, decay, rStrat);
+        scratchLight.copyInto(lightMap, arrayLit.x, arrayLit.y, arrayLit.width, arrayLit.height);
+        return lightMap;
+    }
+
+    /** Same as calculateFOV(resistanceMap, startx, starty, radius), but writes into a caller-owned lightMap */
+    public float[][] calculateFOV(float[][] resistanceMap, float[][] lightMap, int startx, int starty, float radius) {
+        return calculateFOV(resistanceMap, lightMap, startx, starty, 1, 1 / radius, BasicRadiusStrategy.CIRCLE);
+    }
+
+    /**
+     * Calculates the FOV into a light grid.  As with the float[][] version, passing the grid from the previous call
+     * only clears the cells that call lit.
+     */
+    @Override
+    public LightGrid calculateFOV(ResistanceGrid resistance, LightGrid light, int startx, int starty, float force, float decay, RadiusStrategy rStrat) {
+        width = resistance.getWidth();
+        height = resistance.getHeight();
+        if (light == null) {
+            light = new LightGrid(width, height);
+            lastLight = light;
+            gridLit.setBounds(0, 0, 0, 0);
+        } else if ((light.getWidth() != width) || (light.getHeight() != height)) {
+            throw new IllegalArgumentException("light must have the same dimensions as resistance");
+        }
+
+        if (light == lastLight) {
+            light.fill(gridLit.x, gridLit.y, gridLit.width, gridLit.height, 0f);
+        } else {
+            light.fill(0f);
+            lastLight = light;
+        }
+
         this.startx = startx;
         this.starty = starty;
         this.force = force;
         this.decay = decay;
         this.rStrat = rStrat;
-        this.resistanceMap = resistanceMap;
+        this.resistanceMap = resistance.getCells();
+        this.lightMap = light.getCells();
+        radius = (force / decay);
+        reach(startx, starty, radius, width, height, gridLit);
+        rows = rows(radius, width, height);
 
-        width = resistanceMap.length;
-        height = resistanceMap[0].length;
-        lightMap = new float[width][height];
+        lightMap[(starty * width) + startx] = force;//light the starting cell
+        for (Direction d : Direction.DIAGONALS) {
+            castLight(1, 1.0f, 0.0f, 0, d.deltaX, d.deltaY, 0);
+            castLight(1, 1.0f, 0.0f, d.deltaX, 0, 0, d.deltaY);
+        }
+
+        // don't hang on to the caller's arrays between calls
+        this.resistanceMap = null;
+        this.lightMap = null;
+        return light;
+    }
+
+    /**
+     * Calculates which cells are visible into a bit grid, reading opacity from another.  Passing the visible grid from
+     * the previous call only clears the cells that call could have lit.
+     *
+     * @param opaque a set bit marks a cell that blocks all light
+     * @param visible the grid to write the result into, or null to allocate a new one
+     * @return the visible grid, with a bit set for every cell in view
+     */
+    public BitGrid calculateFOV(BitGrid opaque, BitGrid visible, int startx, int starty, float force, float decay, RadiusStrategy rStrat) {
+        width = opaque.getWidth();
+        height = opaque.getHeight();
+        if (visible == null) {
+            visible = new BitGrid(width, height);
+            lastVisible = visible;
+            bitsLit.setBounds(0, 0, 0, 0);
+        } else if ((visible.getWidth() != width) || (visible.getHeight() != height)) {
+            throw new IllegalArgumentException("visible must have the same dimensions as opaque");
+        }
+
+        if (visible == lastVisible) {
+            visible.clear(bitsLit.x, bitsLit.y, bitsLit.width, bitsLit.height);
+        } else {
+            visible.clear();
+            lastVisible = visible;
+        }
+
+        this.startx = startx;
+        this.starty = starty;
+        this.force = force;
+        this.decay = decay;
+        this.rStrat = rStrat;
+        this.opaqueWords = opaque.getWords();
+        this.visibleWords = visible.getWords();
+        this.wordsPerRow = opaque.getWordsPerRow();
         radius = (force / decay);
+        reach(startx, starty, radius, width, height, bitsLit);
+        rows = rows(radius, width, height);
 
-        lightMap[startx][starty] = force;//light the starting cell
+        if (force > 0) visible.set(startx, starty);//light the starting cell
         for (Direction d : Direction.DIAGONALS) {
             castLight(1, 1.0f, 0.0f, 0, d.deltaX, d.deltaY, 0);
             castLight(1, 1.0f, 0.0f, d.deltaX, 0, 0, d.deltaY);
         }
 
-        return lightMap;
+        this.opaqueWords = null;
+        this.visibleWords = null;
+        return visible;
+    }
+
+    /** Same as the BitGrid version with a force of 1, a decay of 1 / radius and a circular radius */
+    public BitGrid calculateFOV(BitGrid opaque, BitGrid visible, int startx, int starty, float radius) {
+        return calculateFOV(opaque, visible, startx, starty, 1, 1 / radius, BasicRadiusStrategy.CIRCLE);
+    }
+
+    // castLight never goes further than radius rows from the start in any octant, so this bounds every cell it reads
+    // or writes
+    static void reach(int startx, int starty, float radius, int width, int height, Rectangle out) {
+        int r = (int) Math.ceil(Math.min(radius, Math.max(width, height)));
+        int minX = Math.max(0, startx - r);
+        int minY = Math.max(0, starty - r);
+        int maxX = Math.min(width - 1, startx + r);
+        int maxY = Math.min(height - 1, starty + r);
+        out.setBounds(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    // the last row a scan of this radius visits, given that nothing further than the larger map side is in bounds.  This
+    // also keeps an infinite radius (a decay of 0) from scanning forever.
+    static int rows(float radius, int width, int height) {
+        return (int) Math.min(Math.floor(radius), Math.max(width, height));
     }
 
     private void castLight(int row, float start, float end, int xx, int xy, int yx, int yy) {
@@ -47,7 +219,7 @@ public class ShadowFOV implements FOVSolver {
             return;
         }
         boolean blocked = false;
-        for (int distance = row; distance <= radius && !blocked; distance++) {
+        for (int distance = row; distance <= rows && !blocked; distance++) {
             int deltaY = -distance;
             for (int deltaX = -distance; deltaX <= 0; deltaX++) {
                 int currentX = startx + deltaX * xx + deltaY * xy;
@@ -62,13 +234,26 @@ public class ShadowFOV implements FOVSolver {
                 }
 
                 //check if it's within the lightable area and light if needed
-                if (rStrat.radius(deltaX, deltaY) <= radius) {
-                    float bright = (float) (1 - (decay * rStrat.radius(deltaX, deltaY) / force));
-                    lightMap[currentX][currentY] = bright;
+                float r = rStrat.radius(deltaX, deltaY);
+                boolean wall;
+                if (opaqueWords == null) {
+                    int current = (currentY * width) + currentX;
+                    if (r <= radius) {
+                        float bright = (float) (1 - (decay * r / force));
+                        lightMap[current] = bright;
+                    }
+                    wall = resistanceMap[current] >= 1;
+                } else {
+                    int word = (currentY * wordsPerRow) + (currentX >>> 6);
+                    long bit = 1L << currentX;
+                    if ((r <= radius) && ((1 - (decay * r / force)) > 0)) {
+                        visibleWords[word] |= bit;
+                    }
+                    wall = (opaqueWords[word] & bit) != 0;
                 }
 
                 if (blocked) { //previous cell was a blocking one
-                    if (resistanceMap[currentX][currentY] >= 1) {//hit a wall
+                    if (wall) {//hit a wall
                         newStart = rightSlope;
                         continue;
                     } else {
@@ -76,7 +261,7 @@ public class ShadowFOV implements FOVSolver {
                         start = newStart;
                     }
                 } else {
-                    if (resistanceMap[currentX][currentY] >= 1 && distance < radius) {//hit a wall within sight line
+                    if (wall && distance < radius) {//hit a wall within sight line
                         blocked = true;
                         castLight(distance + 1, start, leftSlope, xx, xy, yx, yy);
                         newStart = rightSlope;
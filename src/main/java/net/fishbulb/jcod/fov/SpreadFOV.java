@@ -3,24 +3,40 @@ package net.fishbulb.jcod.fov;
 
 import com.google.common.annotations.Beta;
 
+import java.awt.Rectangle;
+
 /**
  * Performs FOV by pushing values outwards from the source location. It will
  * spread around edges like smoke or water. This may not be the desired behavior
  * for a strict sight area, but may be appropriate for a sound map.
  *
- * This algorithm does perform bounds checking.
+ * This algorithm does perform bounds checking, and visits each cell within
+ * the radius once, without recursion.
+ *
+ * As with ShadowFOV, passing the light grid from the previous call only
+ * clears the cells within that call's radius, and float[][] calls run on
+ * reused grids, copying only the cells within reach in and out.
  *
  * @author Eben Howard - http://squidpony.com - howard@squidpony.com
  */
 @Beta
-public class SpreadFOV implements FOVSolver {
+public class SpreadFOV implements GridFOVSolver {
 
-    private float[][] lightMap;
-    private float[][] map;
+    private float[] lightMap;
+    private float[] map;
     private float radius, decay;
     private int startx, starty, width, height;
     private RadiusStrategy rStrat;
 
+    // the light grid written by the last call, and the cells it may have had lit
+    private LightGrid lastLight;
+    private final Rectangle lit = new Rectangle();
+
+    // float[][] calls are run on these, copying only the cells within reach in and out
+    private ResistanceGrid scratchResistance;
+    private LightGrid scratchLight;
+    private final Rectangle arrayReach = new Rectangle();
+
     /**
      * Find the light let through by the nearest square.
      *
@@ -38,10 +54,14 @@ public class SpreadFOV implements FOVSolver {
         y2 = Math.max(0, y2);
         y2 = Math.min(height - 1, y2);
 
+        int x2y = (y * width) + x2;
+        int xy2 = (y2 * width) + x;
+        int x2y2 = (y2 * width) + x2;
+
         //find largest emmitted light in direction of source
-        float light = Math.max(Math.max(lightMap[x2][y] * (1 - map[x2][y]),
-                lightMap[x][y2] * (1 - map[x][y2])),
-                lightMap[x2][y2] * (1 - map[x2][y2]));
+        float light = Math.max(Math.max(lightMap[x2y] * (1 - map[x2y]),
+                lightMap[xy2] * (1 - map[xy2])),
+                lightMap[x2y2] * (1 - map[x2y2]));
 
         float distance = rStrat.radius(x, y, x2, y2);
         light = light - decay * distance;
@@ -50,43 +70,86 @@ public class SpreadFOV implements FOVSolver {
 
     @Override
     public float[][] calculateFOV(float[][] map, int startx, int starty, float force, float decay, RadiusStrategy rStrat) {
-        this.map = map;
+        if ((scratchResistance == null) || !scratchResistance.sameSize(map)) {
+            scratchResistance = new ResistanceGrid(map.length, map[0].length);
+            scratchLight = new LightGrid(map.length, map[0].length);
+        }
+
+        ShadowFOV.reach(startx, starty, force / decay, map.length, map[0].length, arrayReach);
+        scratchResistance.copyFrom(map, arrayReach.x, arrayReach.y, arrayReach.width, arrayReach.height);
+        calculateFOV(scratchResistance, scratchLight, startx, starty, force, decay, rStrat);
+        float[][] lightMap = new float[map.length][map[0].length];
+        scratchLight.copyInto(lightMap, arrayReach.x, arrayReach.y, arrayReach.width, arrayReach.height);
+        return lightMap;
+    }
+
+    @Override
+    public LightGrid calculateFOV(ResistanceGrid resistance, LightGrid light, int startx, int starty, float force, float decay, RadiusStrategy rStrat) {
+        width = resistance.getWidth();
+        height = resistance.getHeight();
+        if (light == null) {
+            light = new LightGrid(width, height);
+            lastLight = light;
+            lit.setBounds(0, 0, 0, 0);
+        } else if ((light.getWidth() != width) || (light.getHeight() != height)) {
+            throw new IllegalArgumentException("light must have the same dimensions as resistance");
+        }
+
+        if (light == lastLight) {
+            light.fill(lit.x, lit.y, lit.width, lit.height, 0f);
+        } else {
+            light.fill(0f);
+            lastLight = light;
+        }
+
+        this.map = resistance.getCells();
+        this.lightMap = light.getCells();
         this.decay = decay;
         this.startx = startx;
         this.starty = starty;
         this.rStrat = rStrat;
         radius = force / decay;//assume worst case of no resistance in tiles
-        width = map.length;
-        height = map[0].length;
-        lightMap = new float[width][height];
+        ShadowFOV.reach(startx, starty, radius, width, height, lit);
 
-        lightMap[startx][starty] = force;//make the starting space full power
+        lightMap[(starty * width) + startx] = force;//make the starting space full power
 
         lightSurroundings(startx, starty);
 
-        return lightMap;
+        this.map = null;
+        this.lightMap = null;
+        return light;
     }
 
+    // A cell's light only depends on the (up to three) cells one step closer to the start on each axis, so sweeping
+    // outwards by distance on x, then on y, settles every cell in a single visit with no recursion.  This gives the
+    // same result as repeatedly relighting the neighbors of every cell whose light changed.
     private void lightSurroundings(int x, int y) {
-        if (lightMap[x][y] <= 0) {
-            return;//no light to spread
+        int reach = (int) Math.ceil(Math.min(radius, Math.max(width, height)));
+        for (int ax = 0; ax <= reach; ax++) {
+            for (int ay = 0; ay <= reach; ay++) {
+                if (ax == 0 && ay == 0) {
+                    continue;//the start is already at full power
+                }
+                relight(x - ax, y - ay);
+                if (ax > 0) relight(x + ax, y - ay);
+                if (ay > 0) relight(x - ax, y + ay);
+                if (ax > 0 && ay > 0) relight(x + ax, y + ay);
+            }
         }
+    }
 
-        for (int dx = x - 1; dx <= x + 1; dx++) {
-            for (int dy = y - 1; dy <= y + 1; dy++) {
-                //ensure in bounds
-                if (dx < 0 || dx >= width || dy < 0 || dy >= height) {
-                    continue;
-                }
+    private void relight(int x, int y) {
+        //ensure in bounds
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return;
+        }
 
-                double r2 = rStrat.radius(startx, starty, dx, dy);
-                if (r2 <= radius) {
-                    float surroundingLight = getNearLight(dx, dy);
-                    if (lightMap[dx][dy] < surroundingLight) {
-                        lightMap[dx][dy] = surroundingLight;
-                        lightSurroundings(dx, dy);//redo neighbors since this one's light changed
-                    }
-                }
+        double r2 = rStrat.radius(startx, starty, x, y);
+        if (r2 <= radius) {
+            float surroundingLight = getNearLight(x, y);
+            int i = (y * width) + x;
+            if (lightMap[i] < surroundingLight) {
+                lightMap[i] = surroundingLight;
             }
         }
     }
@@ -15,6 +15,9 @@ import com.google.common.annotations.Beta;
  *
  * If interrupted, results may not be available.
  *
+ * Note that calling the FOVSolver methods blocks until the calculation is done, so it's no faster than calling the
+ * wrapped solver directly.  To compute many FOVs at once, use BatchFOV.
+ *
  * @author Eben Howard - http://squidpony.com - howard@squidpony.com
  */
 @Beta
@@ -25,6 +28,7 @@ public class ThreadedFOVSolver implements FOVSolver, Runnable {
     private float force, decay;
     private RadiusStrategy strategy;
     private boolean calculating = false;
+    private float[][] resistanceMap;
     private float[][] lightMap;
 
     /**
@@ -32,14 +36,16 @@ public class ThreadedFOVSolver implements FOVSolver, Runnable {
      * when run as a Thread.
      *
      * @param solver
+     * @param resistanceMap
      * @param startx
      * @param starty
      * @param force
      * @param decay
      * @param strategy
      */
-    public ThreadedFOVSolver(FOVSolver solver, int startx, int starty, float force, float decay, RadiusStrategy strategy) {
+    public ThreadedFOVSolver(FOVSolver solver, float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy strategy) {
         this.solver = solver;
+        this.resistanceMap = resistanceMap;
         this.startx = startx;
         this.starty = starty;
         this.force = force;
@@ -52,16 +58,19 @@ public class ThreadedFOVSolver implements FOVSolver, Runnable {
      * calculations when used as a standard Thread.
      *
      * @param solver
+     * @param resistanceMap
      * @param startx
      * @param starty
      * @param radius
      */
-    public ThreadedFOVSolver(FOVSolver solver, int startx, int starty, float radius) {
+    public ThreadedFOVSolver(FOVSolver solver, float[][] resistanceMap, int startx, int starty, float radius) {
         this.solver = solver;
+        this.resistanceMap = resistanceMap;
         this.startx = startx;
         this.starty = starty;
         force = 1f;
         decay = 1f / radius;
+        strategy = BasicRadiusStrategy.CIRCLE;
     }
 
     /**
@@ -76,6 +85,7 @@ public class ThreadedFOVSolver implements FOVSolver, Runnable {
 
     @Override
     public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+        this.resistanceMap = resistanceMap;
         this.startx = startx;
         this.starty = starty;
         this.force = force;
@@ -86,6 +96,7 @@ public class ThreadedFOVSolver implements FOVSolver, Runnable {
 
     @Override
     public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float radius) {
+        this.resistanceMap = resistanceMap;
         this.startx = startx;
         this.starty = starty;
         force = 1f;
@@ -101,6 +112,8 @@ public class ThreadedFOVSolver implements FOVSolver, Runnable {
             try {
                 wait();
             } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
             }
         }
         return lightMap;
@@ -108,12 +121,22 @@ public class ThreadedFOVSolver implements FOVSolver, Runnable {
 
     @Override
     public void run() {
-        calculating = true;
-        lightMap = calculateFOV(lightMap, startx, starty, force, decay, strategy);
-        calculating = false;
+        synchronized (this) {
+            calculating = true;
+        }
+        float[][] result = null;
+        try {
+            result = solver.calculateFOV(resistanceMap, startx, starty, force, decay, strategy);
+        } finally {
+            synchronized (this) {
+                lightMap = result;
+                calculating = false;
+                notifyAll();
+            }
+        }
     }
 
-    public boolean isCalculating() {
+    public synchronized boolean isCalculating() {
         return calculating;
     }
 
@@ -127,7 +150,7 @@ public class ThreadedFOVSolver implements FOVSolver, Runnable {
      *
      * @return
      */
-    public float[][] getLightMap() {
+    public synchronized float[][] getLightMap() {
         if (calculating) {
             return null;
         } else {
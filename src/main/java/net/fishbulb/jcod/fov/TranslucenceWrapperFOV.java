@@ -1,23 +1,42 @@
 package net.fishbulb.jcod.fov;
 
 
+import java.awt.Rectangle;
+
 /**
  * Acts as a wrapper which fully respects translucency and lights based on
  * another FOVSolver.
  *
+ * As with ShadowFOV, passing the light grid from the previous call only
+ * clears the cells that call could have lit, and float[][] calls run on
+ * reused grids, copying only the cells within reach in and out.
+ *
  * @author Eben Howard - http://squidpony.com - howard@squidpony.com
  */
-public class TranslucenceWrapperFOV implements FOVSolver {
+public class TranslucenceWrapperFOV implements GridFOVSolver {
 
     static enum RayType {
         PRIMARY, SECONDARY, TERTIARY
     };
     private FOVSolver fov = new ShadowFOV();
-    private float[][] lightMap, resistanceMap, shadowMap;
+    private float[] lightMap, resistanceMap, shadowMap;
+    private LightGrid shadow;//reused between calls to hold the wrapped solver's result
     private int width, height, startx, starty;
     private RadiusStrategy rStrat;
     private float decay;
 
+    // the light grid written by the last call, and the cells it may have had lit
+    private LightGrid lastLight;
+    private final Rectangle lit = new Rectangle();
+
+    // float[][] calls are run on these, copying only the cells within reach in and out
+    private ResistanceGrid scratchResistance;
+    private LightGrid scratchLight;
+    private final Rectangle arrayReach = new Rectangle();
+
+    // the resistance handed to a wrapped solver that only takes float[][] maps, when the caller passed a grid
+    private float[][] scratchMap;
+
     /**
      * Uses default ShadowFOV to create lit area mapping
      */
@@ -35,22 +54,84 @@ public class TranslucenceWrapperFOV implements FOVSolver {
 
     @Override
     public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
-        width = resistanceMap.length;
-        height = resistanceMap[0].length;
+        if ((scratchResistance == null) || !scratchResistance.sameSize(resistanceMap)) {
+            scratchResistance = new ResistanceGrid(resistanceMap.length, resistanceMap[0].length);
+            scratchLight = new LightGrid(resistanceMap.length, resistanceMap[0].length);
+        }
+
+        ShadowFOV.reach(startx, starty, force / decay + 1, resistanceMap.length, resistanceMap[0].length, arrayReach);
+        scratchResistance.copyFrom(resistanceMap, arrayReach.x, arrayReach.y, arrayReach.width, arrayReach.height);
+        calculateFOV(scratchResistance, resistanceMap, scratchLight, startx, starty, force, decay, radiusStrategy);
+        float[][] lightMap = new float[resistanceMap.length][resistanceMap[0].length];
+        scratchLight.copyInto(lightMap, arrayReach.x, arrayReach.y, arrayReach.width, arrayReach.height);
+        return lightMap;
+    }
+
+    /**
+     * Calculates the FOV into a light grid.  If the wrapped solver isn't a GridFOVSolver, its part of the calculation
+     * goes through float[][] maps.
+     */
+    @Override
+    public LightGrid calculateFOV(ResistanceGrid resistance, LightGrid light, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+        return calculateFOV(resistance, null, light, startx, starty, force, decay, radiusStrategy);
+    }
+
+    // resistanceMap holds the same resistances as a float[][] map if the caller has one, or is null
+    private LightGrid calculateFOV(ResistanceGrid resistance, float[][] resistanceMap, LightGrid light, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+        width = resistance.getWidth();
+        height = resistance.getHeight();
+        if (light == null) {
+            light = new LightGrid(width, height);
+            lastLight = light;
+            lit.setBounds(0, 0, 0, 0);
+        } else if ((light.getWidth() != width) || (light.getHeight() != height)) {
+            throw new IllegalArgumentException("light must have the same dimensions as resistance");
+        }
+
+        if (light == lastLight) {
+            light.fill(lit.x, lit.y, lit.width, lit.height, 0f);
+        } else {
+            light.fill(0f);
+            lastLight = light;
+        }
+        // light loses at least decay per step, so it's pushed at most one step past the radius
+        ShadowFOV.reach(startx, starty, force / decay + 1, width, height, lit);
+
+        if ((shadow == null) || (shadow.getWidth() != width) || (shadow.getHeight() != height)) {
+            shadow = new LightGrid(width, height);
+        }
+        if (fov instanceof GridFOVSolver) {
+            ((GridFOVSolver) fov).calculateFOV(resistance, shadow, startx, starty, force, decay, radiusStrategy);
+        } else {
+            // only the cells within reach are read, so only those need to be in the map or come back out of it
+            if (resistanceMap == null) {
+                if ((scratchMap == null) || (scratchMap.length != width) || (scratchMap[0].length != height)) {
+                    scratchMap = new float[width][height];
+                }
+                resistance.copyInto(scratchMap, lit.x, lit.y, lit.width, lit.height);
+                resistanceMap = scratchMap;
+            }
+            shadow.copyFrom(fov.calculateFOV(resistanceMap, startx, starty, force, decay, radiusStrategy),
+                    lit.x, lit.y, lit.width, lit.height);
+        }
+
         this.startx = startx;
         this.starty = starty;
         this.decay = decay;
-        this.resistanceMap = resistanceMap;
+        this.resistanceMap = resistance.getCells();
+        this.lightMap = light.getCells();
+        this.shadowMap = shadow.getCells();
         this.rStrat = radiusStrategy;
-        lightMap = new float[width][height];
-        shadowMap = fov.calculateFOV(resistanceMap, startx, starty, force, decay, radiusStrategy);
 
-        lightMap[startx][starty] = force;//start out at full currentForce
+        lightMap[(starty * width) + startx] = force;//start out at full currentForce
         for (Direction dir : Direction.OUTWARDS) {
             pushLight(startx + dir.deltaX, starty + dir.deltaY, force + decay, dir, dir, RayType.PRIMARY);
         }
 
-        return lightMap;
+        this.resistanceMap = null;
+        this.lightMap = null;
+        this.shadowMap = null;
+        return light;
     }
 
     /**
@@ -64,42 +145,46 @@ public class TranslucenceWrapperFOV implements FOVSolver {
      * @param light the amount of light coming into this tile
      */
     private void pushLight(int x, int y, float light, Direction dir, Direction previous, RayType type) {
-        if (light <= 0 || x < 0 || x >= width || y < 0 || y >= height || shadowMap[x][y] <= 0 || lightMap[x][y] >= light) {
-            return;//out of light, off the edge, base fov not lit, or already well lit
+        if (light <= 0 || x < 0 || x >= width || y < 0 || y >= height) {
+            return;//out of light or off the edge
+        }
+        int i = (y * width) + x;
+        if (shadowMap[i] <= 0 || lightMap[i] >= light) {
+            return;//base fov not lit, or already well lit
         }
 
-        lightMap[x][y] = light;//apply passed in light
+        lightMap[i] = light;//apply passed in light
 
         if (type == RayType.PRIMARY) {
             //push primary ray
             float radius = rStrat.radius(x, y, x + dir.deltaX, y + dir.deltaY);
             float brightness = light;
-            brightness *= (1 - resistanceMap[x][y]);//light is reduced by the portion of the square passed through
+            brightness *= (1 - resistanceMap[i]);//light is reduced by the portion of the square passed through
             brightness -= radius * decay;//reduce by the amount of decay from passing through
             pushLight(x + dir.deltaX, y + dir.deltaY, brightness, dir, dir, RayType.PRIMARY);
 
             Direction pushing = dir.clockwise();
             radius = rStrat.radius(x, y, x + pushing.deltaX, y + pushing.deltaY);
-            brightness = light * (1 - resistanceMap[x][y]);//light is reduced by the portion of the square passed through
+            brightness = light * (1 - resistanceMap[i]);//light is reduced by the portion of the square passed through
             brightness -= radius * decay;//reduce by the amount of decay from passing through
             pushLight(x + pushing.deltaX, y + pushing.deltaY, brightness, dir, pushing, RayType.SECONDARY);
 
             pushing = dir.counterClockwise();
             radius = rStrat.radius(x, y, x + pushing.deltaX, y + pushing.deltaY);
-            brightness = light * (1 - resistanceMap[x][y]);//light is reduced by the portion of the square passed through
+            brightness = light * (1 - resistanceMap[i]);//light is reduced by the portion of the square passed through
             brightness -= radius * decay;//reduce by the amount of decay from passing through
             pushLight(x + pushing.deltaX, y + pushing.deltaY, brightness, dir, pushing, RayType.SECONDARY);
         } else {//type == SECONDARY at this point
             //push pass-through secondary ray
             Direction pushing = previous;//redirect to previous' previous direction
             float radius = rStrat.radius(x, y, x + pushing.deltaX, y + pushing.deltaY);
-            float brightness = light * (1 - resistanceMap[x][y]);//light is reduced by the portion of the square passed through
+            float brightness = light * (1 - resistanceMap[i]);//light is reduced by the portion of the square passed through
             brightness -= radius * decay;//reduce by the amount of decay from passing through
             pushLight(x + pushing.deltaX, y + pushing.deltaY, brightness, dir, pushing, RayType.SECONDARY);
 
             //now push through tertiary rays, first just continues in direction passed in
             radius = rStrat.radius(x, y, x + dir.deltaX, y + dir.deltaY);
-            brightness = light * (1 - resistanceMap[x][y]);//light is reduced by the portion of the square passed through
+            brightness = light * (1 - resistanceMap[i]);//light is reduced by the portion of the square passed through
             brightness -= radius * decay;//reduce by the amount of decay from passing through
             pushLight(x + dir.deltaX, y + dir.deltaY, brightness, dir, pushing, RayType.SECONDARY);
             if (previous.clockwise().equals(dir)) {
@@ -109,7 +194,7 @@ public class TranslucenceWrapperFOV implements FOVSolver {
             }
 
             radius = rStrat.radius(x, y, x + pushing.deltaX, y + pushing.deltaY);
-            brightness = light * (1 - resistanceMap[x][y]);//light is reduced by the portion of the square passed through
+            brightness = light * (1 - resistanceMap[i]);//light is reduced by the portion of the square passed through
             brightness -= radius * decay;//reduce by the amount of decay from passing through
             pushLight(x + pushing.deltaX, y + pushing.deltaY, brightness, dir, pushing, RayType.SECONDARY);
         }
@@ -2,6 +2,8 @@ package net.fishbulb.jcod.util;
 
 import com.badlogic.gdx.graphics.Color;
 
+import java.util.Arrays;
+
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static net.fishbulb.jcod.util.ColorUtils.lerp;
@@ -23,6 +25,21 @@ public enum BlendMode implements BlendFunction {
         public void blend(Color source, Color dest, Color output) {
             output.set(source);
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return source;
+        }
+
+        @Override
+        public void blendRegion(int[] source, int sourceOffset, int[] dest, int destOffset, int count) {
+            System.arraycopy(source, sourceOffset, dest, destOffset, count);
+        }
+
+        @Override
+        public void blendRegion(int source, int[] dest, int destOffset, int count) {
+            Arrays.fill(dest, destOffset, destOffset + count, source);
+        }
     },
 
     /** Ignores the source color and uses the dest color */
@@ -32,6 +49,21 @@ public enum BlendMode implements BlendFunction {
         public void blend(Color source, Color dest, Color output) {
             output.set(dest);
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return dest;
+        }
+
+        @Override
+        public void blendRegion(int[] source, int sourceOffset, int[] dest, int destOffset, int count) {
+            // dest is already the result
+        }
+
+        @Override
+        public void blendRegion(int source, int[] dest, int destOffset, int count) {
+            // dest is already the result
+        }
     },
 
     /** Multiplies the source color by the dest color (darkening it) */
@@ -43,6 +75,12 @@ public enum BlendMode implements BlendFunction {
             output.mul(source);
             output.a = dest.a;
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return pack(div255(red(source) * red(dest)), div255(green(source) * green(dest)),
+                    div255(blue(source) * blue(dest)), alpha(dest));
+        }
     },
 
     /** Uses the lighest RGB components of source or dest */
@@ -56,6 +94,12 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return pack(max(red(source), red(dest)), max(green(source), green(dest)),
+                    max(blue(source), blue(dest)), alpha(dest));
+        }
     },
 
     /** Uses the darkest RGB components of source or dest */
@@ -69,6 +113,12 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return pack(min(red(source), red(dest)), min(green(source), green(dest)),
+                    min(blue(source), blue(dest)), alpha(dest));
+        }
     },
 
     /** Inverts source and dest colors, multiplies them, and inverts the result (brightening it) */
@@ -82,6 +132,16 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return pack(screen(red(source), red(dest)), screen(green(source), green(dest)),
+                    screen(blue(source), blue(dest)), alpha(dest));
+        }
+
+        private int screen(int s, int d) {
+            return 255 - div255((255 - s) * (255 - d));
+        }
     },
 
     /** Divide source by inverted dest, decreasing contrast and "washing" toward brighter source color */
@@ -95,6 +155,16 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return pack(dodge(red(source), red(dest)), dodge(green(source), green(dest)),
+                    dodge(blue(source), blue(dest)), alpha(dest));
+        }
+
+        private int dodge(int s, int d) {
+            return (d == 255) ? 255 : min(255, ((s * 255) + ((255 - d) >> 1)) / (255 - d));
+        }
     },
 
     /** Divides inverted dest by source, emphasizing the darker colors in dest */
@@ -108,6 +178,16 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return pack(burn(red(source), red(dest)), burn(green(source), green(dest)),
+                    burn(blue(source), blue(dest)), alpha(dest));
+        }
+
+        private int burn(int s, int d) {
+            return (s == 0) ? 0 : max(0, 255 - ((((255 - d) * 255) + (s >> 1)) / s));
+        }
     },
 
     /** Adds the colors together, brightening it by the source, AKA Linear Dodge.  Does not respect alpha. */
@@ -119,6 +199,12 @@ public enum BlendMode implements BlendFunction {
             output.add(source);
             output.a = dest.a;
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return pack(min(255, red(source) + red(dest)), min(255, green(source) + green(dest)),
+                    min(255, blue(source) + blue(dest)), alpha(dest));
+        }
     },
 
     /** TCOD additive blending using alpha, equivalent to glBlendFunc(GL_SRC_ALPHA,GL_ONE) */
@@ -132,6 +218,13 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            int a = alpha(source);
+            return pack(min(255, div255(red(source) * a) + red(dest)), min(255, div255(green(source) * a) + green(dest)),
+                    min(255, div255(blue(source) * a) + blue(dest)), alpha(dest));
+        }
     },
 
     /** JCOD extension: "classic" alpha blending equivalent to glBlendFunc(GL_SRC_ALPHA,GL_ONE_MINUS_SRC_ALPHA). */
@@ -146,6 +239,11 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return mix(source, dest);
+        }
     },
 
     /** TCOD's interpolative alpha blend.  Should technically be the same as Alpha but I havent proven it */
@@ -158,6 +256,11 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return mix(source, dest);
+        }
     },
 
     /** Adds the colors together and and subtracts 1, darkening it similar to Multiply.  AKA Linear Burn */
@@ -172,6 +275,12 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return pack(max(0, red(source) + red(dest) - 255), max(0, green(source) + green(dest) - 255),
+                    max(0, blue(source) + blue(dest) - 255), alpha(dest));
+        }
     },
 
     /** Multiplies dark areas (making them darker), screens light areas (making them lighter) */
@@ -186,9 +295,77 @@ public enum BlendMode implements BlendFunction {
             output.a = dest.a;
             output.clamp();
         }
+
+        @Override
+        public int blend(int source, int dest) {
+            return pack(overlay(red(source), red(dest)), overlay(green(source), green(dest)),
+                    overlay(blue(source), blue(dest)), alpha(dest));
+        }
+
+        private int overlay(int s, int d) {
+            return (s <= 127) ? div255(2 * s * d) : 255 - div255(2 * (255 - s) * (255 - d));
+        }
     };
 
     @Override
     abstract public void blend(Color source, Color dest, Color output);
+
+    /**
+     * Blends packed RGBA8888 colors, working on byte components directly.  Results are within one step per channel of
+     * running the Color version on the unpacked colors and packing the output with ColorUtils.rgba8888.
+     *
+     * @param source - The new "top" color
+     * @param dest   - The existing "bottom" color
+     * @return the blended color
+     */
+    abstract public int blend(int source, int dest);
+
+    /** Blends count packed colors of source onto the same number in dest, in place */
+    public void blendRegion(int[] source, int sourceOffset, int[] dest, int destOffset, int count) {
+        for (int i = 0; i < count; i++) {
+            dest[destOffset + i] = blend(source[sourceOffset + i], dest[destOffset + i]);
+        }
+    }
+
+    /** Blends one packed color onto count colors of dest in place, e.g. to tint a whole console */
+    public void blendRegion(int source, int[] dest, int destOffset, int count) {
+        for (int i = destOffset; i < destOffset + count; i++) {
+            dest[i] = blend(source, dest[i]);
+        }
+    }
+
+    static int red(int rgba) {
+        return rgba >>> 24;
+    }
+
+    static int green(int rgba) {
+        return (rgba >>> 16) & 0xff;
+    }
+
+    static int blue(int rgba) {
+        return (rgba >>> 8) & 0xff;
+    }
+
+    static int alpha(int rgba) {
+        return rgba & 0xff;
+    }
+
+    static int pack(int r, int g, int b, int a) {
+        return (r << 24) | (g << 16) | (b << 8) | a;
+    }
+
+    // x / 255, rounded to nearest, for x from 0 to 255 * 255
+    static int div255(int x) {
+        int t = x + 128;
+        return (t + (t >>> 8)) >>> 8;
+    }
+
+    // source over dest by source alpha, keeping dest alpha
+    static int mix(int source, int dest) {
+        int a = alpha(source);
+        int na = 255 - a;
+        return pack(div255((red(source) * a) + (red(dest) * na)), div255((green(source) * a) + (green(dest) * na)),
+                div255((blue(source) * a) + (blue(dest) * na)), alpha(dest));
+    }
 }
 
@@ -18,6 +18,65 @@ public final class ColorUtils {
         return lerp(from, to, coef, new Color());
     }
 
+    /** Packed RGBA8888 version of lerp.  Like the Color version, alpha is taken from the "from" color. */
+    public static int lerp(int from, int to, float coef) {
+        int fr = (from >>> 24), fg = (from >>> 16) & 0xff, fb = (from >>> 8) & 0xff;
+        int tr = (to >>> 24), tg = (to >>> 16) & 0xff, tb = (to >>> 8) & 0xff;
+        return (toByte((fr + (tr - fr) * coef) / 255f) << 24)
+                | (toByte((fg + (tg - fg) * coef) / 255f) << 16)
+                | (toByte((fb + (tb - fb) * coef) / 255f) << 8)
+                | (from & 0xff);
+    }
+
+    /**
+     * Packs a color into an RGBA8888 int.  Unlike Color.rgba8888, components are clamped and rounded to the nearest
+     * byte value, so unpacking and repacking a color is stable.
+     */
+    public static int rgba8888(float r, float g, float b, float a) {
+        return (toByte(r) << 24) | (toByte(g) << 16) | (toByte(b) << 8) | toByte(a);
+    }
+
+    public static int rgba8888(Color color) {
+        return rgba8888(color.r, color.g, color.b, color.a);
+    }
+
+    /** Packs byte components, such as the ones in a string's color codes, clamping each to 0..255 */
+    public static int rgba8888FromBytes(int r, int g, int b, int a) {
+        return (clampByte(r) << 24) | (clampByte(g) << 16) | (clampByte(b) << 8) | clampByte(a);
+    }
+
+    /** Unpacks an RGBA8888 int into the given color and returns it */
+    public static Color rgba8888ToColor(int rgba, Color output) {
+        output.r = (rgba >>> 24) / 255f;
+        output.g = ((rgba >>> 16) & 0xff) / 255f;
+        output.b = ((rgba >>> 8) & 0xff) / 255f;
+        output.a = (rgba & 0xff) / 255f;
+        return output;
+    }
+
+    /**
+     * Runs a blend function on packed RGBA8888 colors.  BlendModes blend the ints directly.  Other functions go through
+     * the two scratch colors, which are overwritten, so a caller blending many cells can pass the same ones every time
+     * and allocate nothing.
+     */
+    public static int blend(BlendFunction func, int source, int dest, Color sourceTmp, Color destTmp) {
+        if (func instanceof BlendMode) return ((BlendMode) func).blend(source, dest);
+        rgba8888ToColor(source, sourceTmp);
+        rgba8888ToColor(dest, destTmp);
+        func.blend(sourceTmp, destTmp, destTmp);
+        return rgba8888(destTmp);
+    }
+
+    private static int clampByte(int i) {
+        return (i < 0) ? 0 : (i > 255) ? 255 : i;
+    }
+
+    private static int toByte(float f) {
+        if (f <= 0) return 0;
+        if (f >= 1) return 255;
+        return (int) (f * 255 + 0.5f);
+    }
+
     /**
      * Returns a float between [0,1] giving the Euclidian distance between two colors in RGB space (alpha is ignored).
      * Note that this is really only useful for colors that have similar hues already.  For something closer to what
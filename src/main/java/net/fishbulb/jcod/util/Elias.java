@@ -11,7 +11,12 @@ import java.util.List;
  * coordinates.
  *
  * Because of the way this line is calculated, endpoints may be swapped and
- * therefore the list may not be in start-to-end order.
+ * therefore the points may not be in start-to-end order.  The two end points
+ * come first, then the points in between.  Each point is plotted with its
+ * brightness, and the same cell may be plotted twice.
+ *
+ * Nothing is kept between calls, so lines can be drawn from any number of
+ * threads at once.
  *
  * Based on work by Hugo Elias at
  * http://freespace.virgin.net/hugo.elias/graphics/x_wuline.htm which is in turn
@@ -22,37 +27,62 @@ import java.util.List;
 @Beta
 public class Elias {
 
-    static private List<Point> path;
-    static private float[][] lightMap;
-    static private int width, height;
-
     private Elias() {
     }
 
-    public static float[][] lightMap(double startx, double starty, double endx, double endy) {
-        line(startx, starty, endx, endy);
+    /**
+     * Writes the brightness of each cell of the line into lightMap, which isn't
+     * cleared first.  Points falling outside of it are skipped.
+     *
+     * @return lightMap
+     */
+    public static float[][] lightMap(double startx, double starty, double endx, double endy, final float[][] lightMap) {
+        line(startx, starty, endx, endy, new PlotFunction() {
+            @Override
+            public boolean apply(int x, int y, float val) {
+                if ((x >= 0) && (x < lightMap.length) && (y >= 0) && (y < lightMap[0].length)) {
+                    lightMap[x][y] = val;
+                }
+                return true;
+            }
+        });
         return lightMap;
     }
 
+    /**
+     * Returns a new map just big enough to hold the line, with the brightness of each cell on it.
+     *
+     * @deprecated allocates a map reaching from 0,0 to the end point for every line; pass a buffer instead
+     */
+    @Deprecated
+    public static float[][] lightMap(double startx, double starty, double endx, double endy) {
+        float[][] lightMap = new float[(int) (Math.max(startx, endx) + 1)][(int) (Math.max(starty, endy) + 1)];
+        return lightMap(startx, starty, endx, endy, lightMap);
+    }
 
+    /**
+     * Returns the points of the line with non-negative coordinates no further out than the end points.
+     *
+     * @deprecated allocates a point per cell; pass a PlotFunction instead
+     */
+    @Deprecated
     public static List<Point> line(double startx, double starty, double endx, double endy) {
-        path = new LinkedList<>();
-        width = (int) (Math.max(startx, endx) + 1);
-        height = (int) (Math.max(starty, endy) + 1);
-        lightMap = new float[width][height];
-        runLine(startx, starty, endx, endy);
+        final List<Point> path = new LinkedList<>();
+        final int width = (int) (Math.max(startx, endx) + 1);
+        final int height = (int) (Math.max(starty, endy) + 1);
+        line(startx, starty, endx, endy, new PlotFunction() {
+            @Override
+            public boolean apply(int x, int y, float val) {
+                if ((x >= 0) && (x < width) && (y >= 0) && (y < height)) {
+                    path.add(new Point(x, y));
+                }
+                return true;
+            }
+        });
         return path;
     }
 
 
-    private static void mark(double x, double y, double c) {
-        //check bounds overflow from antialiasing
-        if (x >= 0 && x < width && y >= 0 && y < height) {
-            path.add(new Point((int) x, (int) y));
-            lightMap[(int) x][(int) y] = (float) c;
-        }
-    }
-
     private static double trunc(double x) {
         if (x < 0) {
             return Math.ceil(x);
@@ -69,7 +99,17 @@ public class Elias {
         return 1 - frac(x);
     }
 
-    private static void runLine(double startx, double starty, double endx, double endy) {
+    /**
+     * Plots each point of the line with its brightness, stopping early if
+     * plot returns false.  Coordinates may be negative, or one past the end
+     * points, where the antialiasing spills over.
+     */
+    public static void line(double startx, double starty, double endx, double endy, PlotFunction plot) {
+        if ((startx == endx) && (starty == endy)) {
+            plot.apply((int) startx, (int) starty, 1f);
+            return;
+        }
+
         double x1 = startx, y1 = starty, x2 = endx, y2 = endy;
         double grad, xd, yd, length, xm, ym, xgap, ygap, xend, yend, xf, yf, brightness1, brightness2;
         int x, y, ix1, ix2, iy1, iy2;
@@ -118,11 +158,11 @@ public class Elias {
         brightness2 = frac(yend) * xgap;
 
         if (shallow) {
-            mark(ix1, iy1, brightness1);
-            mark(ix1, iy1 + 1, brightness2);
+            if (!plot.apply(ix1, iy1, (float) brightness1)) return;
+            if (!plot.apply(ix1, iy1 + 1, (float) brightness2)) return;
         } else {
-            mark(iy1, ix1, brightness1);
-            mark(iy1 + 1, ix1, brightness2);
+            if (!plot.apply(iy1, ix1, (float) brightness1)) return;
+            if (!plot.apply(iy1 + 1, ix1, (float) brightness2)) return;
         }
 
         yf = yend + grad;
@@ -140,11 +180,11 @@ public class Elias {
         brightness2 = frac(yend) * xgap;
 
         if (shallow) {
-            mark(ix2, iy2, brightness1);
-            mark(ix2, iy2 + 1, brightness2);
+            if (!plot.apply(ix2, iy2, (float) brightness1)) return;
+            if (!plot.apply(ix2, iy2 + 1, (float) brightness2)) return;
         } else {
-            mark(iy2, ix2, brightness1);
-            mark(iy2 + 1, ix2, brightness2);
+            if (!plot.apply(iy2, ix2, (float) brightness1)) return;
+            if (!plot.apply(iy2 + 1, ix2, (float) brightness2)) return;
         }
 
         //add the in-between points
@@ -153,11 +193,11 @@ public class Elias {
             brightness2 = frac(yf);
 
             if (shallow) {
-                mark(x, (int) yf, brightness1);
-                mark(x, (int) yf + 1, brightness2);
+                if (!plot.apply(x, (int) yf, (float) brightness1)) return;
+                if (!plot.apply(x, (int) yf + 1, (float) brightness2)) return;
             } else {
-                mark((int) yf, x, brightness1);
-                mark((int) yf + 1, x, brightness2);
+                if (!plot.apply((int) yf, x, (float) brightness1)) return;
+                if (!plot.apply((int) yf + 1, x, (float) brightness2)) return;
             }
 
             yf += grad;
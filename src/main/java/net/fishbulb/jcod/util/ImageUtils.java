@@ -13,6 +13,7 @@ import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.Math.sin;
 import static net.fishbulb.jcod.util.ColorUtils.lerp;
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888ToColor;
 import static net.fishbulb.jcod.util.ColorUtils.rgbdist;
 
 public final class ImageUtils {
@@ -260,6 +261,7 @@ public final class ImageUtils {
 
         Color[] grid = {new Color(), new Color(), new Color(), new Color()};
         Color[] cols = {new Color(), new Color()};
+        Color consoleBack = new Color();
 
         Color oldBg = con.getDefaultBackground();
         Color oldFg = con.getDefaultForeground();
@@ -269,7 +271,7 @@ public final class ImageUtils {
             /* get the 2x2 super pixel colors from the image */
                 int conx = dx + (cx - sx) / 2;
                 int cony = dy + (cy - sy) / 2;
-                Color consoleBack = con.getCharBackground(conx, cony);
+                rgba8888ToColor(con.getCharBackgroundRGBA(conx, cony), consoleBack);
                 // grid[0]=TCOD_image_get_pixel(image,cx,cy);
                 grid[0].set(consoleBack);
                 grid[1].set(consoleBack);
@@ -167,6 +167,46 @@ public enum PlotAlgorithms implements PlotAlgorithm {
                 yf += grad;
             }
         }
+    },
+
+    /**
+     * Exact grid traversal (Amanatides and Woo) of the segment between the centers of the two cells.  Every cell the
+     * segment passes through is plotted once, in order.  Where the segment passes exactly through a corner, it steps
+     * diagonally without plotting either side cell, since it only touches them at a point.
+     * <p/>
+     * All arithmetic is on integers: the segment crosses its i-th vertical cell edge at t = (2i + 1) / 2|dx| and its
+     * j-th horizontal one at (2j + 1) / 2|dy|, so comparing (2i + 1)|dy| with (2j + 1)|dx| decides which comes first.
+     */
+    DDA {
+        @Override
+        public void apply(int x1, int y1, int x2, int y2, PlotFunction plot) {
+            int dx = Math.abs(x2 - x1);
+            int dy = Math.abs(y2 - y1);
+            int sx = Integer.signum(x2 - x1);
+            int sy = Integer.signum(y2 - y1);
+
+            long nextX = dy;
+            long nextY = dx;
+            int x = x1;
+            int y = y1;
+            while (true) {
+                if (!plot.apply(x, y, 1.0f)) return;
+                if ((x == x2) && (y == y2)) return;
+
+                if (nextX < nextY) {
+                    x += sx;
+                    nextX += 2L * dy;
+                } else if (nextY < nextX) {
+                    y += sy;
+                    nextY += 2L * dx;
+                } else {
+                    x += sx;
+                    y += sy;
+                    nextX += 2L * dy;
+                    nextY += 2L * dx;
+                }
+            }
+        }
     };
 
 
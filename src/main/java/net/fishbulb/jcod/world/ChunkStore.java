@@ -0,0 +1,16 @@
+package net.fishbulb.jcod.world;
+
+import java.io.IOException;
+
+/**
+ * Somewhere for a WorldLayer to keep chunks it has evicted from memory.  Each array holds one chunk's cells,
+ * row-major, WorldLayer.CHUNK_SIZE squared long.
+ */
+public interface ChunkStore {
+
+    /** Saves a chunk, replacing any earlier copy */
+    public void save(int chunkX, int chunkY, char[] chars, int[] fgs, int[] bgs) throws IOException;
+
+    /** Reads a saved chunk back into the arrays */
+    public void load(int chunkX, int chunkY, char[] chars, int[] fgs, int[] bgs) throws IOException;
+}
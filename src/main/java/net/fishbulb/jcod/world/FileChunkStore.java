@@ -0,0 +1,57 @@
+package net.fishbulb.jcod.world;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps each chunk in its own gzipped file in a directory.  Chunks are mostly runs of the same few cells, so they
+ * compress to a small fraction of their 10K in memory.
+ */
+public class FileChunkStore implements ChunkStore {
+
+    private final File directory;
+
+    /** @param directory where to put the chunk files, which is created if needed */
+    public FileChunkStore(File directory) {
+        this.directory = directory;
+    }
+
+    private File file(int chunkX, int chunkY) {
+        return new File(directory, "chunk_" + chunkX + "_" + chunkY + ".gz");
+    }
+
+    @Override
+    public void save(int chunkX, int chunkY, char[] chars, int[] fgs, int[] bgs) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create chunk directory " + directory);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file(chunkX, chunkY)))))) {
+            for (int i = 0; i < chars.length; i++) {
+                out.writeChar(chars[i]);
+                out.writeInt(fgs[i]);
+                out.writeInt(bgs[i]);
+            }
+        }
+    }
+
+    @Override
+    public void load(int chunkX, int chunkY, char[] chars, int[] fgs, int[] bgs) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file(chunkX, chunkY)))))) {
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = in.readChar();
+                fgs[i] = in.readInt();
+                bgs[i] = in.readInt();
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package net.fishbulb.jcod.world;
+
+import com.badlogic.gdx.graphics.Color;
+import lombok.Getter;
+import net.fishbulb.jcod.Console;
+
+/**
+ * Shows a window of a WorldLayer on a console, scrolled so the console's top left cell is world cell (left, top).
+ * Cells past the edges of the world show the world's defaults.
+ * <p/>
+ * Scrolling by less than a screen moves what's already on the console with a blit and only copies the rows and
+ * columns that came into view, so following the player a tile at a time copies one row or column of the world.
+ * update() copies the chunks written since the last copy, so changes to the world show up without redrawing the
+ * rest.  The console's own dirty tracking then limits flush() to the cells that actually look different.
+ */
+public class Viewport {
+
+    @Getter
+    private final WorldLayer world;
+
+    @Getter
+    private final Console console;
+
+    @Getter
+    private int left;
+
+    @Getter
+    private int top;
+
+    // the world's modCount when the console was last brought up to date
+    private int syncedAt;
+
+    /** How many cells the last scroll or update copied from the world */
+    @Getter
+    private int cellsCopied;
+
+    public Viewport(WorldLayer world, Console console, int left, int top) {
+        this.world = world;
+        this.console = console;
+        this.left = left;
+        this.top = top;
+        refresh();
+    }
+
+    /** Copies the whole window from the world again */
+    public void refresh() {
+        cellsCopied = 0;
+        copy(0, 0, console.getWidth(), console.getHeight());
+        syncedAt = world.modCount;
+    }
+
+    public void scrollBy(int dx, int dy) {
+        scrollTo(left + dx, top + dy);
+    }
+
+    /** Scrolls so a world cell is in the middle of the console */
+    public void centerOn(int x, int y) {
+        scrollTo(x - (console.getWidth() / 2), y - (console.getHeight() / 2));
+    }
+
+    /** Scrolls so the console's top left cell is world cell (left, top), and copies anything written since */
+    public void scrollTo(int left, int top) {
+        int w = console.getWidth();
+        int h = console.getHeight();
+        int dx = left - this.left;
+        int dy = top - this.top;
+        this.left = left;
+        this.top = top;
+        if ((Math.abs(dx) >= w) || (Math.abs(dy) >= h)) {
+            refresh();
+            return;
+        }
+
+        cellsCopied = 0;
+        if ((dx != 0) || (dy != 0)) {
+            // the blit skips cells matching the key color, which a scroll mustn't do
+            Color key = console.getKeyColor();
+            console.setKeyColor(null);
+            console.blit(Math.max(dx, 0), Math.max(dy, 0), w - Math.abs(dx), h - Math.abs(dy),
+                    console, Math.max(-dx, 0), Math.max(-dy, 0), 1, 1);
+            console.setKeyColor(key);
+
+            // the columns that came into view, then the rows, without copying the corner twice
+            if (dx > 0) copy(w - dx, 0, dx, h);
+            if (dx < 0) copy(0, 0, -dx, h);
+            int x1 = Math.max(-dx, 0);
+            int x2 = w - Math.max(dx, 0);
+            if (dy > 0) copy(x1, h - dy, x2 - x1, dy);
+            if (dy < 0) copy(x1, 0, x2 - x1, -dy);
+        }
+        copyChanged();
+    }
+
+    /** Copies the parts of the world written since the last copy */
+    public void update() {
+        cellsCopied = 0;
+        copyChanged();
+    }
+
+    // copies every visible chunk written since syncedAt
+    private void copyChanged() {
+        int w = console.getWidth();
+        int h = console.getHeight();
+        int minX = Math.max(left, 0);
+        int minY = Math.max(top, 0);
+        int maxX = Math.min(left + w, world.getWidth()) - 1;
+        int maxY = Math.min(top + h, world.getHeight()) - 1;
+        if ((minX <= maxX) && (minY <= maxY)) {
+            for (int cy = minY >> WorldLayer.CHUNK_SHIFT; cy <= maxY >> WorldLayer.CHUNK_SHIFT; cy++) {
+                for (int cx = minX >> WorldLayer.CHUNK_SHIFT; cx <= maxX >> WorldLayer.CHUNK_SHIFT; cx++) {
+                    if (world.versions[(cy * world.getChunksWide()) + cx] <= syncedAt) continue;
+                    // the part of the chunk in view, in console coordinates
+                    int x1 = Math.max(cx << WorldLayer.CHUNK_SHIFT, minX) - left;
+                    int y1 = Math.max(cy << WorldLayer.CHUNK_SHIFT, minY) - top;
+                    int x2 = Math.min((cx + 1) << WorldLayer.CHUNK_SHIFT, maxX + 1) - left;
+                    int y2 = Math.min((cy + 1) << WorldLayer.CHUNK_SHIFT, maxY + 1) - top;
+                    copy(x1, y1, x2 - x1, y2 - y1);
+                }
+            }
+        }
+        syncedAt = world.modCount;
+    }
+
+    // copies a rectangle of the console from the world, a chunk's span of a row at a time
+    private void copy(int x, int y, int w, int h) {
+        for (int vy = y; vy < y + h; vy++) {
+            int wy = top + vy;
+            int vx = x;
+            while (vx < x + w) {
+                int wx = left + vx;
+                if (!world.contains(wx, wy)) {
+                    console.putCharEx(vx, vy, world.getChar(wx, wy), world.getForeground(wx, wy), world.getBackground(wx, wy));
+                    vx++;
+                    continue;
+                }
+                // up to the end of this chunk's row or of the rectangle
+                int span = Math.min((x + w) - vx, WorldLayer.CHUNK_SIZE - (wx & WorldLayer.CHUNK_MASK));
+                WorldLayer.Chunk chunk = world.chunk(world.chunkIndex(wx, wy));
+                if (chunk == null) {
+                    for (int i = 0; i < span; i++) {
+                        console.putCharEx(vx + i, vy, world.getDefaultChar(), world.getDefaultForeground(), world.getDefaultBackground());
+                    }
+                } else {
+                    int cell = WorldLayer.cellIndex(wx, wy);
+                    for (int i = 0; i < span; i++, cell++) {
+                        console.putCharEx(vx + i, vy, chunk.chars[cell], chunk.fgs[cell], chunk.bgs[cell]);
+                    }
+                }
+                vx += span;
+            }
+        }
+        cellsCopied += w * h;
+    }
+}
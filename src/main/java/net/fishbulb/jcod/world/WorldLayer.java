@@ -0,0 +1,225 @@
+package net.fishbulb.jcod.world;
+
+import com.badlogic.gdx.graphics.Color;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888;
+
+/**
+ * A map of console cells far larger than the screen, such as an overworld, shown through a Viewport.
+ * <p/>
+ * Cells are stored in CHUNK_SIZE x CHUNK_SIZE chunks that are only allocated when something is written to them, so
+ * the parts of the map nobody touches cost nothing but a null.  Chunks can be evicted to a ChunkStore and are read
+ * back the next time they're needed.  Colors are packed RGBA8888, as in Console.
+ * <p/>
+ * Cells that were never written, and cells off the map, read as the default character and colors.  Change those
+ * before writing anything, since chunks are filled with them when they're allocated.
+ */
+public class WorldLayer {
+
+    public static final int CHUNK_SIZE = 32;
+
+    static final int CHUNK_SHIFT = 5;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    /** The size of the map in chunks */
+    @Getter
+    private final int chunksWide, chunksHigh;
+
+    @Getter @Setter
+    private char defaultChar = ' ';
+
+    @Getter @Setter
+    private int defaultForeground = rgba8888(Color.WHITE);
+
+    @Getter @Setter
+    private int defaultBackground = rgba8888(Color.BLACK);
+
+    private final ChunkStore store;
+
+    // chunks by (chunkY * chunksWide) + chunkX, null until written or while evicted
+    private final Chunk[] chunks;
+
+    // chunks that are in the store rather than in memory
+    private final BitSet evicted = new BitSet();
+
+    // the modCount of each chunk's last write, so a Viewport can tell what changed since it last looked
+    final int[] versions;
+    int modCount;
+
+    /** How many chunks are in memory */
+    @Getter
+    private int chunksLoaded;
+
+    static final class Chunk {
+        final char[] chars = new char[CHUNK_SIZE * CHUNK_SIZE];
+        final int[] fgs = new int[CHUNK_SIZE * CHUNK_SIZE];
+        final int[] bgs = new int[CHUNK_SIZE * CHUNK_SIZE];
+    }
+
+    /** A map that keeps every chunk in memory */
+    public WorldLayer(int width, int height) {
+        this(width, height, null);
+    }
+
+    /**
+     * @param store where evicted chunks go, or null if chunks are never evicted
+     */
+    public WorldLayer(int width, int height, ChunkStore store) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid world dimensions specified (must be at least 1x1)");
+        }
+        this.width = width;
+        this.height = height;
+        this.store = store;
+        chunksWide = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+        chunksHigh = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+        chunks = new Chunk[chunksWide * chunksHigh];
+        versions = new int[chunksWide * chunksHigh];
+    }
+
+    public boolean contains(int x, int y) {
+        return (x >= 0) && (x < width) && (y >= 0) && (y < height);
+    }
+
+    /** True if the chunk holding a cell has been written to, whether it's in memory or evicted */
+    public boolean isAllocated(int x, int y) {
+        int c = chunkIndex(x, y);
+        return (chunks[c] != null) || evicted.get(c);
+    }
+
+    static int cellIndex(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_SHIFT) + (x & CHUNK_MASK);
+    }
+
+    int chunkIndex(int x, int y) {
+        return ((y >> CHUNK_SHIFT) * chunksWide) + (x >> CHUNK_SHIFT);
+    }
+
+    // the chunk for reading, loading it if it was evicted, or null if it was never written
+    Chunk chunk(int c) {
+        Chunk chunk = chunks[c];
+        if ((chunk == null) && evicted.get(c)) {
+            chunk = new Chunk();
+            try {
+                store.load(c % chunksWide, c / chunksWide, chunk.chars, chunk.fgs, chunk.bgs);
+            } catch (IOException e) {
+                throw new IllegalStateException("Couldn't load chunk " + (c % chunksWide) + "," + (c / chunksWide), e);
+            }
+            evicted.clear(c);
+            chunks[c] = chunk;
+            chunksLoaded++;
+        }
+        return chunk;
+    }
+
+    // the chunk for writing, allocating it if needed, and marked as changed
+    private Chunk writable(int c) {
+        Chunk chunk = chunk(c);
+        if (chunk == null) {
+            chunk = new Chunk();
+            Arrays.fill(chunk.chars, defaultChar);
+            Arrays.fill(chunk.fgs, defaultForeground);
+            Arrays.fill(chunk.bgs, defaultBackground);
+            chunks[c] = chunk;
+            chunksLoaded++;
+        }
+        versions[c] = ++modCount;
+        return chunk;
+    }
+
+    public char getChar(int x, int y) {
+        if (!contains(x, y)) return defaultChar;
+        Chunk chunk = chunk(chunkIndex(x, y));
+        return (chunk == null) ? defaultChar : chunk.chars[cellIndex(x, y)];
+    }
+
+    public int getForeground(int x, int y) {
+        if (!contains(x, y)) return defaultForeground;
+        Chunk chunk = chunk(chunkIndex(x, y));
+        return (chunk == null) ? defaultForeground : chunk.fgs[cellIndex(x, y)];
+    }
+
+    public int getBackground(int x, int y) {
+        if (!contains(x, y)) return defaultBackground;
+        Chunk chunk = chunk(chunkIndex(x, y));
+        return (chunk == null) ? defaultBackground : chunk.bgs[cellIndex(x, y)];
+    }
+
+    public void setChar(int x, int y, char ch) {
+        if (!contains(x, y)) return;
+        writable(chunkIndex(x, y)).chars[cellIndex(x, y)] = ch;
+    }
+
+    public void setForeground(int x, int y, int rgba) {
+        if (!contains(x, y)) return;
+        writable(chunkIndex(x, y)).fgs[cellIndex(x, y)] = rgba;
+    }
+
+    public void setBackground(int x, int y, int rgba) {
+        if (!contains(x, y)) return;
+        writable(chunkIndex(x, y)).bgs[cellIndex(x, y)] = rgba;
+    }
+
+    /** Sets all of a cell at once, with packed RGBA8888 colors */
+    public void put(int x, int y, char ch, int fore, int back) {
+        if (!contains(x, y)) return;
+        Chunk chunk = writable(chunkIndex(x, y));
+        int i = cellIndex(x, y);
+        chunk.chars[i] = ch;
+        chunk.fgs[i] = fore;
+        chunk.bgs[i] = back;
+    }
+
+    public void put(int x, int y, char ch, Color fore, Color back) {
+        put(x, y, ch, rgba8888(fore), rgba8888(back));
+    }
+
+    /** Saves a chunk to the store and drops it from memory.  Does nothing if it isn't in memory. */
+    public void evict(int chunkX, int chunkY) {
+        int c = (chunkY * chunksWide) + chunkX;
+        Chunk chunk = chunks[c];
+        if (chunk == null) return;
+        if (store == null) throw new IllegalStateException("This world has no ChunkStore to evict to");
+        try {
+            store.save(chunkX, chunkY, chunk.chars, chunk.fgs, chunk.bgs);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't save chunk " + chunkX + "," + chunkY, e);
+        }
+        chunks[c] = null;
+        evicted.set(c);
+        chunksLoaded--;
+    }
+
+    /**
+     * Evicts every chunk in memory that doesn't overlap a rectangle, such as the area around the camera.  Returns the
+     * number of chunks evicted.
+     */
+    public int evictOutside(int x, int y, int w, int h) {
+        int minX = x >> CHUNK_SHIFT;
+        int minY = y >> CHUNK_SHIFT;
+        int maxX = (x + w - 1) >> CHUNK_SHIFT;
+        int maxY = (y + h - 1) >> CHUNK_SHIFT;
+        int count = 0;
+        for (int cy = 0; cy < chunksHigh; cy++) {
+            for (int cx = 0; cx < chunksWide; cx++) {
+                if ((cx >= minX) && (cx <= maxX) && (cy >= minY) && (cy <= maxY)) continue;
+                if (chunks[(cy * chunksWide) + cx] == null) continue;
+                evict(cx, cy);
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,103 @@
+package net.fishbulb.jcod;
+
+import com.badlogic.gdx.graphics.Color;
+import net.fishbulb.jcod.display.TileDisplay;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+
+public class CompositorTest {
+
+    private static Console layer(Random rng, int w, int h) {
+        Console con = new Console(w, h);
+        int[] palette = {0x000000ff, 0xff0000ff, 0x00ff00ff, 0x336699ff};
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                con.putCharEx(x, y, (char) ('a' + rng.nextInt(3)), palette[rng.nextInt(4)], palette[rng.nextInt(4)]);
+            }
+        }
+        return con;
+    }
+
+    // what the root should look like: every visible layer blitted over a cleared console
+    private static void assertComposed(Compositor compositor, String where) {
+        Console root = compositor.getRoot();
+        Console expected = new Console(root.getWidth(), root.getHeight());
+        for (Compositor.Layer layer : compositor.getLayers()) {
+            if (!layer.isVisible()) continue;
+            Console con = layer.getConsole();
+            con.blit(0, 0, con.getWidth(), con.getHeight(), expected, layer.getX(), layer.getY(),
+                    layer.getFgAlpha(), layer.getBgAlpha());
+        }
+        for (int y = 0; y < root.getHeight(); y++) {
+            for (int x = 0; x < root.getWidth(); x++) {
+                String cell = where + " at " + x + "," + y;
+                assertEquals(root.getChar(x, y), expected.getChar(x, y), cell);
+                assertEquals(root.getCharForegroundRGBA(x, y), expected.getCharForegroundRGBA(x, y), cell);
+                assertEquals(root.getCharBackgroundRGBA(x, y), expected.getCharBackgroundRGBA(x, y), cell);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesFullRedraw() throws Exception {
+        Random rng = new Random(24);
+        Compositor compositor = new Compositor(new Console(20, 12));
+        Compositor.Layer map = compositor.addLayer(layer(rng, 20, 12), 0, 0);
+        Compositor.Layer panel = compositor.addLayer(layer(rng, 8, 5), 3, 2, 1, 0.5f);
+        Compositor.Layer tooltip = compositor.addLayer(layer(rng, 6, 3), -2, 9);
+        tooltip.setKeyColor(Color.RED);
+        compositor.compose();
+        assertComposed(compositor, "first");
+
+        Compositor.Layer[] all = {map, panel, tooltip};
+        for (int i = 0; i < 200; i++) {
+            Compositor.Layer layer = all[rng.nextInt(3)];
+            switch (rng.nextInt(5)) {
+                case 0:
+                    layer.moveTo(rng.nextInt(24) - 4, rng.nextInt(16) - 4);
+                    break;
+                case 1:
+                    layer.setAlpha(rng.nextFloat(), rng.nextFloat());
+                    break;
+                case 2:
+                    layer.setVisible(!layer.isVisible());
+                    break;
+                default:
+                    Console con = layer.getConsole();
+                    con.putCharEx(rng.nextInt(con.getWidth()), rng.nextInt(con.getHeight()), 'z', 0xffffffff, 0x0000ffff);
+            }
+            compositor.compose();
+            assertComposed(compositor, "step " + i);
+        }
+
+        compositor.removeLayer(panel);
+        compositor.compose();
+        assertComposed(compositor, "removed");
+    }
+
+    @Test
+    public void testUnchangedLayersCostNothing() throws Exception {
+        Random rng = new Random(25);
+        Console root = new Console(30, 10, null, new TileDisplay(30, 10, 1, 1, null));
+        Compositor compositor = new Compositor(root);
+        compositor.addLayer(layer(rng, 30, 10), 0, 0);
+        Console panel = layer(rng, 10, 4);
+        compositor.addLayer(panel, 5, 5, 1, 0.5f);
+        compositor.compose();
+        assertEquals(compositor.getCellsComposed(), 300);
+        root.flush();
+
+        compositor.compose();
+        assertEquals(compositor.getCellsComposed(), 0);
+        assertEquals(root.getDirtyCellCount(), 0);
+
+        panel.setChar(2, 1, '!');
+        compositor.compose();
+        assertEquals(compositor.getCellsComposed(), 1);
+        assertEquals(root.getDirtyCellCount(), 1);
+        assertEquals(root.getChar(7, 6), '!');
+    }
+}
@@ -1,12 +1,15 @@
 package net.fishbulb.jcod;
 
+import com.badlogic.gdx.graphics.Color;
 import mockit.Mocked;
 import net.fishbulb.jcod.display.TileDisplay;
 import net.fishbulb.jcod.display.Tileset;
+import net.fishbulb.jcod.util.BlendMode;
 import org.testng.annotations.Test;
 import org.testng.log4testng.Logger;
 
 import java.nio.charset.Charset;
+import java.util.Random;
 
 import static org.testng.Assert.assertEquals;
 
@@ -94,6 +97,164 @@ public class ConsoleTest {
         assertEquals(wrapped, "foo\nbar baz xyz\nmumble frotz");
     }
 
+    @Test
+    public void testCellStorage() throws Exception {
+        Console con = new Console(4, 3);
+        Color fg = new Color(0.2f, 0.4f, 0.6f, 1f);
+        Color bg = new Color(1f, 0.8f, 0f, 1f);
+        con.putCharEx(1, 2, 'x', fg, bg);
+
+        assertEquals(con.getChar(1, 2), 'x');
+        assertEquals(con.getCharForeground(1, 2), fg);
+        assertEquals(con.getCharBackground(1, 2), bg);
+        assertEquals(con.getChar(0, 0), ' ');
+        assertEquals(con.getCharBackground(0, 0), Color.BLACK);
+
+        // off the edge
+        assertEquals(con.getChar(4, 0), (char) 0);
+        con.putCharEx(-1, 0, 'y', fg, bg);
+
+        con.clear();
+        assertEquals(con.getChar(1, 2), ' ');
+        assertEquals(con.getCharForeground(1, 2), Color.WHITE);
+    }
+
+    @Test
+    public void testColorCodes() throws Exception {
+        Console con = new Console(12, 1);
+        // the last control used to be past the end of the control arrays
+        con.setColorControl(Console.COLCTRL_5, Color.GREEN, Color.BLUE);
+        String str = "a" + Console.getRGBAColorControlString(Console.COLCTRL_FORE_RGB, 255, 0, 0, 255) + "b"
+                + Console.getColorControlString(Console.COLCTRL_5) + "c"
+                + Console.getColorControlString(Console.COLCTRL_STOP) + "d";
+        con.putString(0, 0, 12, 1, str, 0, Console.Alignment.Left, Color.WHITE, Color.BLACK, null);
+
+        assertEquals(con.getCharForegroundRGBA(0, 0), 0xffffffff);
+        assertEquals(con.getCharForegroundRGBA(1, 0), 0xff0000ff);
+        assertEquals(con.getCharForegroundRGBA(2, 0), 0x00ff00ff);
+        assertEquals(con.getCharBackgroundRGBA(2, 0), 0x0000ffff);
+        assertEquals(con.getCharForegroundRGBA(3, 0), 0xffffffff);
+        assertEquals(con.getCharBackgroundRGBA(3, 0), 0x000000ff);
 
+        // packed backgrounds go through Color blend functions
+        con.setCharBackground(5, 0, 0x808080ff, BlendMode.Set);
+        con.setCharBackground(5, 0, 0x80ff00ff, BlendMode.Multiply);
+        assertEquals(con.getCharBackgroundRGBA(5, 0), 0x408000ff);
 
+        // off the console
+        assertEquals(con.getCharBackgroundRGBA(-1, 0), 0x000000ff);
+        assertEquals(con.getCharForegroundRGBA(0, 1), 0xffffffff);
+    }
+
+    @Test
+    public void testBlit() throws Exception {
+        Console src = new Console(3, 3);
+        Console dst = new Console(5, 5);
+        src.putCharEx(0, 0, 'a', Color.RED, Color.BLUE);
+        src.putCharEx(2, 2, 'b', Color.GREEN, Color.WHITE);
+
+        src.blit(0, 0, 0, 0, dst, 3, 3, 1, 1);
+        assertEquals(dst.getChar(3, 3), 'a');
+        assertEquals(dst.getCharForeground(3, 3), Color.RED);
+        assertEquals(dst.getCharBackground(3, 3), Color.BLUE);
+        assertEquals(dst.getChar(4, 4), ' ');   // clipped, 'b' would land at 5,5
+
+        // key color skips cells with a matching background
+        src.setKeyColor(Color.BLACK);
+        dst.clear();
+        dst.setChar(4, 3, 'z');
+        src.blit(0, 0, 0, 0, dst, 3, 3, 1, 1);
+        assertEquals(dst.getChar(3, 3), 'a');
+        assertEquals(dst.getChar(4, 3), 'z');
+    }
+
+    private static Console randomConsole(Random rng, int w, int h) {
+        Console con = new Console(w, h, null, new TileDisplay(w, h, 1, 1, null));
+        int[] palette = {0x000000ff, 0xff0000ff, 0x00ff00ff, 0x336699ff};
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                char c = rng.nextBoolean() ? ' ' : (char) ('a' + rng.nextInt(3));
+                con.putCharEx(x, y, c, palette[rng.nextInt(4)], palette[rng.nextInt(4)]);
+            }
+        }
+        con.flush();
+        return con;
+    }
+
+    private static void assertSameCells(Console actual, Console expected, String where) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(actual.getChar(x, y), expected.getChar(x, y), where + " char at " + x + "," + y);
+                assertEquals(actual.getCharForegroundRGBA(x, y), expected.getCharForegroundRGBA(x, y), where + " fg at " + x + "," + y);
+                assertEquals(actual.getCharBackgroundRGBA(x, y), expected.getCharBackgroundRGBA(x, y), where + " bg at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    public void testBlitClipping() throws Exception {
+        Random rng = new Random(23);
+        for (int i = 0; i < 300; i++) {
+            long seed = rng.nextLong();
+            Console src = randomConsole(new Random(seed), 6, 5);
+            Console dst = randomConsole(new Random(seed + 1), 7, 4);
+            Console ref = randomConsole(new Random(seed + 1), 7, 4);
+            if (i % 3 == 1) {
+                src.setKeyColor(Color.RED);
+            }
+            float fgAlpha = (i % 3 == 2) ? 0.3f + rng.nextInt(2) * 0.4f : 1;
+            float bgAlpha = (i % 3 == 2) ? 0.5f : 1;
+            int xSrc = rng.nextInt(10) - 3, ySrc = rng.nextInt(9) - 3, w = 1 + rng.nextInt(8), h = 1 + rng.nextInt(7);
+            int xDest = rng.nextInt(12) - 4, yDest = rng.nextInt(9) - 4;
+            String where = i + ": " + xSrc + "," + ySrc + " " + w + "x" + h + " -> " + xDest + "," + yDest;
+
+            src.blit(xSrc, ySrc, w, h, dst, xDest, yDest, fgAlpha, bgAlpha);
+            // cell by cell, clipping each blit down to one cell or nothing
+            for (int iy = 0; iy < h; iy++) {
+                for (int ix = 0; ix < w; ix++) {
+                    src.blit(xSrc + ix, ySrc + iy, 1, 1, ref, xDest + ix, yDest + iy, fgAlpha, bgAlpha);
+                }
+            }
+            assertSameCells(dst, ref, where);
+            assertEquals(dst.getDirtyCellCount(), ref.getDirtyCellCount(), where);
+
+            // onto itself, as if from a copy
+            Console self = randomConsole(new Random(seed), 6, 5);
+            Console copy = randomConsole(new Random(seed), 6, 5);
+            Console expected = randomConsole(new Random(seed), 6, 5);
+            if (i % 3 == 1) {
+                self.setKeyColor(Color.RED);
+                copy.setKeyColor(Color.RED);
+            }
+            self.blit(xSrc, ySrc, w, h, self, xDest, yDest, fgAlpha, bgAlpha);
+            copy.blit(xSrc, ySrc, w, h, expected, xDest, yDest, fgAlpha, bgAlpha);
+            assertSameCells(self, expected, "self " + where);
+        }
+    }
+
+    @Test
+    public void testDirtyTracking() throws Exception {
+        Console con = new Console(10, 5, null, new TileDisplay(10, 5, 1, 1, null));
+        assertEquals(con.getDirtyRectCount(), 1);
+        assertEquals(con.getDirtyCellCount(), 50);
+
+        con.flush();
+        assertEquals(con.getDirtyRectCount(), 0);
+
+        // writing the same values again doesn't dirty anything
+        con.setChar(3, 3, ' ');
+        assertEquals(con.getDirtyCellCount(), 0);
+
+        con.print(2, 1, "foo");
+        con.print(2, 2, "bar");
+        con.setChar(9, 4, 'x');
+        assertEquals(con.getDirtyRectCount(), 2);
+        assertEquals(con.getDirtyCellCount(), 7);
+
+        con.flush();
+        assertEquals(con.getDirtyCellCount(), 0);
+
+        con.clear();
+        assertEquals(con.getDirtyRectCount(), 1);
+    }
 }
@@ -0,0 +1,108 @@
+package net.fishbulb.jcod.display;
+
+import com.badlogic.gdx.graphics.Texture;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static net.fishbulb.jcod.display.ImageTileset.Layout;
+import static net.fishbulb.jcod.display.ImageTileset.ascii_to_tcod_table;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class ImageTilesetTest {
+
+    @Mocked Texture texture;
+
+    // a 32x8 sheet of 8x8 tiles, the shape of the TCOD fonts
+    private ImageTileset tileset(Layout layout) {
+        new NonStrictExpectations() {{
+            texture.getWidth(); result = 256;
+            texture.getHeight(); result = 64;
+        }};
+        return new ImageTileset(texture, 8, 8, layout);
+    }
+
+    // how get(char) resolved chars before the lookup table: the tile map, then the TCOD table or the layout
+    private static Tile resolve(ImageTileset tileset, char c) {
+        Tile tile = tileset.getTileMap().get(c);
+        if (tile != null) return tile;
+        int columns = tileset.columns();
+        int rows = tileset.rows();
+        switch (tileset.getLayout()) {
+            case TCOD:
+                if (c > 255) return null;
+                char idx = ascii_to_tcod_table[c];
+                return tileset.get(idx % columns, idx / columns);
+            case InColumns:
+                return tileset.get(c / rows, c % rows);
+            default:
+                return tileset.get(c % columns, c / columns);
+        }
+    }
+
+    private static void assertResolves(ImageTileset tileset, String where) {
+        for (char c = 0; c < 2048; c++) {
+            assertSame(tileset.get(c), resolve(tileset, c), where + " for char " + (int) c);
+        }
+        assertSame(tileset.get(Character.MAX_VALUE), resolve(tileset, Character.MAX_VALUE), where);
+    }
+
+    @Test
+    public void testLayouts() throws Exception {
+        for (Layout layout : Layout.values()) {
+            ImageTileset tileset = tileset(layout);
+            assertResolves(tileset, layout.name());
+        }
+
+        ImageTileset rows = tileset(Layout.InRows);
+        assertSame(rows.get('A'), rows.get(1, 2));
+        assertNull(rows.get((char) 256));
+
+        ImageTileset columns = tileset(Layout.InColumns);
+        assertSame(columns.get('A'), columns.get(8, 1));
+
+        ImageTileset tcod = tileset(Layout.TCOD);
+        assertSame(tcod.get('@'), tcod.get(0, 1));
+        assertNotNull(tcod.get((char) 0xe0));
+        assertNull(tcod.get((char) 256));
+    }
+
+    @Test
+    public void testMappedChars() throws Exception {
+        for (Layout layout : Layout.values()) {
+            ImageTileset tileset = tileset(layout);
+            Tile wall = tileset.get(3, 0);
+            Tile floor = tileset.get(4, 0);
+
+            tileset.mapChar('#', wall);
+            tileset.mapChar('\u2550', floor); // past the end of the table
+            assertSame(tileset.get('#'), wall);
+            assertSame(tileset.get('\u2550'), floor);
+            assertResolves(tileset, layout + " after mapChar");
+
+            // mapping to null falls back to the layout, as does unmapping
+            tileset.mapChar('#', null);
+            assertResolves(tileset, layout + " after mapping to null");
+            tileset.mapChar('#', wall);
+            tileset.unmapChar('#');
+            tileset.unmapChar('\u2550');
+            tileset.unmapChar('\u3000');
+            assertNull(tileset.get('\u2550'));
+            assertResolves(tileset, layout + " after unmapChar");
+
+            Map<Character, Tile> map = new HashMap<>();
+            map.put('.', floor);
+            map.put('\u2551', wall);
+            map.put('x', null);
+            tileset.setTileMap(map);
+            assertSame(tileset.get('.'), floor);
+            assertSame(tileset.get('\u2551'), wall);
+            assertResolves(tileset, layout + " after setTileMap");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package net.fishbulb.jcod.display;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.scenes.scene2d.utils.BaseDrawable;
+import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import org.testng.annotations.Test;
+
+import static net.fishbulb.jcod.display.TileMesh.TILE_SIZE;
+import static net.fishbulb.jcod.display.TileMesh.VERTEX_SIZE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TileMeshTest {
+
+    // no texture behind it, so this works without GL
+    private static TextureRegionDrawable glyph(final float u, final float v, final float u2, final float v2) {
+        return new TextureRegionDrawable(new TextureRegion() {
+            @Override public float getU() { return u; }
+            @Override public float getV() { return v; }
+            @Override public float getU2() { return u2; }
+            @Override public float getV2() { return v2; }
+        });
+    }
+
+    @Test
+    public void testSetCell() throws Exception {
+        TileMesh mesh = new TileMesh(4, 3, 10, 8);
+        mesh.setCell(1, 0, glyph(0.25f, 0.5f, 0.5f, 0.75f), 0xff0000ff, 0x0000ffff);
+
+        // top row is drawn highest, y grows upward in GL
+        int offset = ((0 * 4) + 1) * TILE_SIZE;
+        float[] fg = mesh.getGlyphVertices();
+        assertEquals(fg[offset], 10f);
+        assertEquals(fg[offset + 1], 16f);
+        assertEquals(fg[offset + 2], Color.RED.toFloatBits());
+        assertEquals(fg[offset + 3], 0.25f);
+        assertEquals(fg[offset + 4], 0.75f);
+
+        // opposite corner of the quad
+        int corner = offset + (VERTEX_SIZE * 2);
+        assertEquals(fg[corner], 20f);
+        assertEquals(fg[corner + 1], 24f);
+        assertEquals(fg[corner + 3], 0.5f);
+        assertEquals(fg[corner + 4], 0.5f);
+
+        assertEquals(mesh.getBackgroundVertices()[offset + 2], Color.BLUE.toFloatBits());
+        assertTrue(mesh.isUniform());
+    }
+
+    @Test
+    public void testEmptyCellsHaveNoArea() throws Exception {
+        TileMesh mesh = new TileMesh(2, 2, 10, 10);
+        mesh.setCell(0, 0, null, 0xffffffff, 0x000000ff);
+
+        // background but no glyph
+        float[] bg = mesh.getBackgroundVertices();
+        float[] fg = mesh.getGlyphVertices();
+        assertEquals(bg[VERTEX_SIZE * 2], 10f);
+        assertEquals(fg[VERTEX_SIZE * 2], fg[0]);
+
+        mesh.clearCell(0, 0);
+        assertEquals(bg[VERTEX_SIZE * 2], bg[0]);
+    }
+
+    @Test
+    public void testUniformRecovers() throws Exception {
+        TileMesh mesh = new TileMesh(3, 1, 10, 10);
+        mesh.setCell(0, 0, glyph(0, 0, 1, 1), 0xffffffff, 0x000000ff);
+
+        // a glyph that isn't a region only breaks uniformity while it's on the grid
+        mesh.setCell(1, 0, new BaseDrawable(), 0xffffffff, 0x000000ff);
+        mesh.setCell(2, 0, new BaseDrawable(), 0xffffffff, 0x000000ff);
+        assertFalse(mesh.isUniform());
+        mesh.setCell(1, 0, glyph(0, 0, 1, 1), 0xffffffff, 0x000000ff);
+        assertFalse(mesh.isUniform());
+        mesh.clearCell(2, 0);
+        assertTrue(mesh.isUniform());
+
+        mesh.setCell(2, 0, new BaseDrawable(), 0xffffffff, 0x000000ff);
+        mesh.setCell(2, 0, null, 0xffffffff, 0x000000ff);
+        assertTrue(mesh.isUniform());
+    }
+
+    @Test
+    public void testOriginAndTint() throws Exception {
+        TileMesh mesh = new TileMesh(2, 2, 10, 10);
+        mesh.setCell(0, 1, glyph(0, 0, 1, 1), 0xffffffff, 0xffffffff);
+
+        mesh.setOrigin(100, 50);
+        float[] fg = mesh.getGlyphVertices();
+        int offset = 2 * TILE_SIZE;
+        assertEquals(fg[offset], 100f);
+        assertEquals(fg[offset + 1], 50f);
+
+        mesh.setTint(1, 1, 1, 0);
+        assertEquals(fg[offset + 2], Color.toFloatBits(255, 255, 255, 0));
+    }
+}
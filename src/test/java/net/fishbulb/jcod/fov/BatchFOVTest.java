@@ -0,0 +1,163 @@
+package net.fishbulb.jcod.fov;
+
+import com.google.common.base.Supplier;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.fishbulb.jcod.fov.ShadowFOVTest.assertSameLight;
+import static net.fishbulb.jcod.fov.ShadowFOVTest.randomMap;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class BatchFOVTest {
+
+    private static final Supplier<FOVSolver> SHADOW = new Supplier<FOVSolver>() {
+        @Override
+        public FOVSolver get() {
+            return new ShadowFOV();
+        }
+    };
+
+    private static List<BatchFOV.Viewer> viewers(float[][] map, int count) {
+        Random rng = new Random(count);
+        List<BatchFOV.Viewer> viewers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int x = rng.nextInt(map.length);
+            int y = rng.nextInt(map[0].length);
+            map[x][y] = 0;
+            viewers.add(new BatchFOV.Viewer(x, y, 3 + rng.nextInt(10)));
+        }
+        return viewers;
+    }
+
+    @Test
+    public void testMatchesSequential() throws Exception {
+        float[][] map = randomMap(60, 40, 7);
+        List<BatchFOV.Viewer> viewers = viewers(map, 37);
+        BatchFOV batch = new BatchFOV(SHADOW, 4);
+        try {
+            List<float[][]> results = batch.calculateFOV(map, viewers);
+            List<LightGrid> grids = batch.calculateFOV(ResistanceGrid.of(map), viewers);
+            assertEquals(results.size(), viewers.size());
+            assertEquals(grids.size(), viewers.size());
+            for (int i = 0; i < viewers.size(); i++) {
+                BatchFOV.Viewer v = viewers.get(i);
+                float[][] expected = new ShadowFOV().calculateFOV(map, v.x, v.y, v.force, v.decay, v.radiusStrategy);
+                assertSameLight(results.get(i), expected);
+                assertSameLight(grids.get(i).toArray(), expected);
+            }
+        } finally {
+            batch.shutdown();
+        }
+    }
+
+    @Test
+    public void testEarlierGridResultsSurviveLargerBatches() throws Exception {
+        float[][] map = randomMap(30, 20, 9);
+        List<BatchFOV.Viewer> viewers = viewers(map, 12);
+        BatchFOV batch = new BatchFOV(SHADOW, 2);
+        try {
+            ResistanceGrid resistance = ResistanceGrid.of(map);
+            List<LightGrid> small = batch.calculateFOV(resistance, viewers.subList(0, 3));
+            batch.calculateFOV(resistance, viewers);
+            // the grids are reused, but the list is still readable
+            assertEquals(small.size(), 3);
+            BatchFOV.Viewer v = viewers.get(1);
+            assertSameLight(small.get(1).toArray(),
+                    new ShadowFOV().calculateFOV(map, v.x, v.y, v.force, v.decay, v.radiusStrategy));
+        } finally {
+            batch.shutdown();
+        }
+    }
+
+    @Test
+    public void testPlainSolversReuseTheirArrays() throws Exception {
+        float[][] map = randomMap(30, 20, 10);
+        List<BatchFOV.Viewer> viewers = viewers(map, 6);
+        final Set<float[][]> seen = Collections.newSetFromMap(new IdentityHashMap<float[][], Boolean>());
+        BatchFOV batch = new BatchFOV(new Supplier<FOVSolver>() {
+            @Override
+            public FOVSolver get() {
+                // only a float[][] solver, so the batch has to copy the grid for it
+                return new FOVSolver() {
+                    final FOVSolver shadow = new ShadowFOV();
+
+                    @Override
+                    public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+                        synchronized (seen) {
+                            seen.add(resistanceMap);
+                        }
+                        return shadow.calculateFOV(resistanceMap, startx, starty, force, decay, radiusStrategy);
+                    }
+
+                    @Override
+                    public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float radius) {
+                        return calculateFOV(resistanceMap, startx, starty, 1, 1 / radius, BasicRadiusStrategy.CIRCLE);
+                    }
+                };
+            }
+        }, 2);
+        try {
+            ResistanceGrid resistance = ResistanceGrid.of(map);
+            batch.calculateFOV(resistance, viewers);
+            List<LightGrid> grids = batch.calculateFOV(resistance, viewers);
+            assertEquals(seen.size(), 2);
+            BatchFOV.Viewer v = viewers.get(4);
+            assertSameLight(grids.get(4).toArray(),
+                    new ShadowFOV().calculateFOV(map, v.x, v.y, v.force, v.decay, v.radiusStrategy));
+        } finally {
+            batch.shutdown();
+        }
+    }
+
+    @Test
+    public void testInterruptWaitsForRunningChunks() throws Exception {
+        float[][] map = randomMap(20, 20, 11);
+        List<BatchFOV.Viewer> viewers = viewers(map, 2);
+        final AtomicInteger finished = new AtomicInteger();
+        BatchFOV batch = new BatchFOV(new Supplier<FOVSolver>() {
+            @Override
+            public FOVSolver get() {
+                return new ShadowFOV() {
+                    @Override
+                    public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        finished.incrementAndGet();
+                        return super.calculateFOV(resistanceMap, startx, starty, force, decay, radiusStrategy);
+                    }
+                };
+            }
+        }, 2);
+        try {
+            Thread.currentThread().interrupt();
+            batch.calculateFOV(map, viewers);
+            fail("expected the interrupt to be reported");
+        } catch (IllegalStateException e) {
+            assertTrue(Thread.interrupted(), "the interrupt flag wasn't restored");
+            assertEquals(finished.get(), 2, "a chunk was still running");
+        } finally {
+            Thread.interrupted();
+            batch.shutdown();
+        }
+    }
+
+    @Test
+    public void testThreadedSolver() throws Exception {
+        float[][] map = randomMap(30, 30, 8);
+        map[15][15] = 0;
+        float[][] light = new ThreadedFOVSolver(new ShadowFOV()).calculateFOV(map, 15, 15, 8);
+        assertSameLight(light, new ShadowFOV().calculateFOV(map, 15, 15, 8));
+    }
+}
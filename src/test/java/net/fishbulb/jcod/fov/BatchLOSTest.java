@@ -0,0 +1,61 @@
+package net.fishbulb.jcod.fov;
+
+import org.testng.annotations.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static net.fishbulb.jcod.fov.ShadowFOVTest.randomMap;
+import static org.testng.Assert.assertEquals;
+
+public class BatchLOSTest {
+
+    @Test
+    public void testBothMethods() throws Exception {
+        float[][] map = randomMap(60, 60, 10);
+        ResistanceGrid grid = ResistanceGrid.of(map);
+        Random rng = new Random(11);
+        int[] tx = new int[300];
+        int[] ty = new int[300];
+        for (int i = 0; i < tx.length; i++) {
+            tx[i] = rng.nextInt(70) - 5; // some off the map
+            ty[i] = rng.nextInt(70) - 5;
+        }
+
+        BatchLOS lines = new BatchLOS(new BresenhamLOS(), 0);
+        BatchLOS shadow = new BatchLOS(new BresenhamLOS(), Float.POSITIVE_INFINITY);
+        BitSet traced = lines.isReachable(map, 30, 30, tx, ty, 1, 1 / 12f, BasicRadiusStrategy.CIRCLE, null);
+        BitSet cast = shadow.isReachable(grid, 30, 30, tx, ty, 1, 1 / 12f, BasicRadiusStrategy.CIRCLE, new BitSet());
+        float[][] fov = new ShadowFOV().calculateFOV(map, 30, 30, 12);
+
+        BresenhamLOS los = new BresenhamLOS();
+        for (int i = 0; i < tx.length; i++) {
+            boolean onMap = (tx[i] >= 0) && (ty[i] >= 0) && (tx[i] < 60) && (ty[i] < 60);
+            assertEquals(traced.get(i), onMap && los.isReachable(map, 30, 30, tx[i], ty[i], 1, 1 / 12f, BasicRadiusStrategy.CIRCLE));
+            assertEquals(cast.get(i), onMap && (fov[tx[i]][ty[i]] > 0));
+        }
+    }
+
+    @Test
+    public void testSwitchesByCost() throws Exception {
+        final int[] lines = {0};
+        BatchLOS batch = new BatchLOS(new BresenhamLOS() {
+            @Override
+            public boolean isReachable(float[][] resistanceMap, int startx, int starty, int targetx, int targety, float force, float decay, RadiusStrategy radiusStrategy) {
+                lines[0]++;
+                return super.isReachable(resistanceMap, startx, starty, targetx, targety, force, decay, radiusStrategy);
+            }
+        }, BatchLOS.DEFAULT_CELLS_PER_LINE);
+
+        // a radius 10 square is 441 cells: 100 lines are cheaper than shadowcasting it, 200 aren't
+        float[][] map = new float[100][100];
+        batch.isReachable(map, 50, 50, new int[100], new int[100], 1, 0.1f, BasicRadiusStrategy.CIRCLE, null);
+        assertEquals(lines[0], 100);
+        batch.isReachable(map, 50, 50, new int[200], new int[200], 1, 0.1f, BasicRadiusStrategy.CIRCLE, null);
+        assertEquals(lines[0], 100);
+
+        // but 200 aren't worth shadowcasting the whole 100x100 map for an unlimited radius
+        assertEquals(batch.isReachable(map, 50, 50, new int[200], new int[200]).cardinality(), 200);
+        assertEquals(lines[0], 300);
+    }
+}
@@ -0,0 +1,39 @@
+package net.fishbulb.jcod.fov;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static net.fishbulb.jcod.util.PlotAlgorithms.Bresenham;
+import static org.testng.Assert.assertEquals;
+
+public class BresenhamLOSTest {
+
+    @Test
+    public void testMatchesPlotFunction() throws Exception {
+        Random rng = new Random(9);
+        float[][] map = new float[40][40];
+        for (int x = 0; x < 40; x++) {
+            for (int y = 0; y < 40; y++) {
+                float roll = rng.nextFloat();
+                map[x][y] = (roll < 0.1f) ? 1 : (roll < 0.3f) ? rng.nextFloat() : 0;
+            }
+        }
+        ResistanceGrid grid = ResistanceGrid.of(map);
+        BresenhamLOS los = new BresenhamLOS();
+
+        for (int i = 0; i < 5000; i++) {
+            int sx = rng.nextInt(40), sy = rng.nextInt(40), tx = rng.nextInt(40), ty = rng.nextInt(40);
+            RadiusStrategy strategy = BasicRadiusStrategy.values()[rng.nextInt(3)];
+            // whole radii put targets exactly on the edge of the range
+            float force = (i % 2 == 0) ? 1 : rng.nextFloat() * 2;
+            float decay = (i % 5 == 0) ? 0 : 1f / (1 + rng.nextInt(20));
+
+            BasicLOSFunction expected = new BasicLOSFunction(map, sx, sy, force, decay, strategy);
+            Bresenham.apply(sx, sy, tx, ty, expected);
+            String where = sx + "," + sy + " -> " + tx + "," + ty + " " + strategy + " " + force + "/" + decay;
+            assertEquals(los.isReachable(map, sx, sy, tx, ty, force, decay, strategy), expected.isReachable(), where);
+            assertEquals(los.isReachable(grid, sx, sy, tx, ty, force, decay, strategy), expected.isReachable(), where);
+        }
+    }
+}
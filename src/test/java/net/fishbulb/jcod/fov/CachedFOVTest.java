@@ -0,0 +1,91 @@
+package net.fishbulb.jcod.fov;
+
+import org.testng.annotations.Test;
+
+import static net.fishbulb.jcod.fov.ShadowFOVTest.assertSameLight;
+import static net.fishbulb.jcod.fov.ShadowFOVTest.randomMap;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class CachedFOVTest {
+
+    @Test
+    public void testHitsAndEviction() throws Exception {
+        float[][] map = randomMap(64, 64, 3);
+        CachedFOV cache = new CachedFOV(new ShadowFOV(), 2);
+
+        float[][] a = cache.calculateFOV(map, 10, 10, 8);
+        assertSame(cache.calculateFOV(map, 10, 10, 8), a);
+        assertSameLight(a, new ShadowFOV().calculateFOV(map, 10, 10, 8));
+
+        cache.calculateFOV(map, 50, 50, 8);
+        cache.calculateFOV(map, 10, 10, 8);  // refreshes a, so the next call evicts 50,50
+        cache.calculateFOV(map, 30, 30, 8);
+        assertEquals(cache.getEvictions(), 1);
+        assertSame(cache.calculateFOV(map, 10, 10, 8), a);
+        cache.calculateFOV(map, 50, 50, 8);
+
+        assertEquals(cache.getHits(), 3);
+        assertEquals(cache.getMisses(), 4);
+        assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testRadiusIsPassedThrough() throws Exception {
+        final float[] passed = new float[1];
+        FOVSolver recording = new ShadowFOV() {
+            @Override
+            public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float radius) {
+                passed[0] = radius;
+                return super.calculateFOV(resistanceMap, startx, starty, radius);
+            }
+        };
+        CachedFOV cache = new CachedFOV(recording, 4);
+
+        // 1 / (1 / radius) rounds to a different float for this radius
+        float radius = 1.7000002f;
+        cache.calculateFOV(randomMap(16, 16, 5), 8, 8, radius);
+        assertEquals(passed[0], radius);
+    }
+
+    @Test
+    public void testInvalidation() throws Exception {
+        float[][] map = randomMap(64, 64, 4);
+        CachedFOV cache = new CachedFOV(new ShadowFOV(), 8);
+
+        float[][] near = cache.calculateFOV(map, 10, 10, 6);
+        float[][] far = cache.calculateFOV(map, 50, 50, 6);
+
+        // an edit near one viewer leaves the other's result alone
+        map[12][10] = 1;
+        cache.markChanged(12, 10);
+        float[][] recast = cache.calculateFOV(map, 10, 10, 6);
+        assertNotSame(recast, near);
+        assertSameLight(recast, new ShadowFOV().calculateFOV(map, 10, 10, 6));
+        assertSame(cache.calculateFOV(map, 50, 50, 6), far);
+        assertSame(cache.calculateFOV(map, 10, 10, 6), recast);
+
+        cache.invalidate();
+        assertNotSame(cache.calculateFOV(map, 50, 50, 6), far);
+    }
+
+    @Test
+    public void testSolverLightingPastItsRadius() throws Exception {
+        float[][] map = new float[32][32];
+        FOVSolver merged = new MergedFOV(MergedFOV.MergeType.MAXIMUM).add(new ShadowFOV(), 1, 1).add(new ShadowFOV(), 1, 2);
+        CachedFOV cache = new CachedFOV(merged, 16);
+
+        float[][] before = cache.calculateFOV(map, 10, 10, 5);
+        assertTrue(before[19][10] > 0);
+
+        // past the radius, but in the longer-ranged child's light
+        map[18][10] = 1;
+        cache.markChanged(18, 10);
+        float[][] after = cache.calculateFOV(map, 10, 10, 5);
+        assertNotSame(after, before);
+        assertSameLight(after, merged.calculateFOV(map, 10, 10, 5));
+        assertEquals(after[19][10], 0f);
+    }
+}
@@ -0,0 +1,64 @@
+package net.fishbulb.jcod.fov;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static net.fishbulb.jcod.fov.ShadowFOVTest.randomMap;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class EliasLOSTest {
+
+    @Test
+    public void testSeesWhatBresenhamSees() throws Exception {
+        float[][] map = randomMap(30, 30, 20);
+        ResistanceGrid grid = ResistanceGrid.of(map);
+        BresenhamLOS bresenham = new BresenhamLOS();
+        EliasLOS plain = new EliasLOS(0);
+        EliasLOS fuzzy = new EliasLOS();
+
+        int extra = 0;
+        Random rng = new Random(1);
+        for (int i = 0; i < 3000; i++) {
+            int sx = rng.nextInt(30), sy = rng.nextInt(30), tx = rng.nextInt(30), ty = rng.nextInt(30);
+            String where = sx + "," + sy + " -> " + tx + "," + ty;
+            boolean expected = bresenham.isReachable(map, sx, sy, tx, ty);
+            // with no sideview only the start is a midpoint, which is plain Bresenham
+            assertEquals(plain.isReachable(map, sx, sy, tx, ty), expected, where);
+
+            boolean seen = fuzzy.isReachable(map, sx, sy, tx, ty);
+            assertEquals(fuzzy.isReachable(grid, sx, sy, tx, ty, Float.MAX_VALUE, 0, BasicRadiusStrategy.CIRCLE), seen, where);
+            if (expected) assertTrue(seen, where);
+            if (seen && !expected) extra++;
+        }
+        assertTrue(extra > 0, "never saw around a corner");
+    }
+
+    @Test
+    public void testFovMatchesLos() throws Exception {
+        float[][] map = randomMap(50, 50, 21);
+        EliasFOV fov = new EliasFOV();
+        Random rng = new Random(2);
+        for (int i = 0; i < 5; i++) {
+            int sx = rng.nextInt(50), sy = rng.nextInt(50);
+            map[sx][sy] = 0;
+            float radius = 5 + rng.nextInt(20);
+            float[][] light = fov.calculateFOV(map, sx, sy, radius);
+            // the same solver reused for another origin must agree with a fresh one
+            float[][] fresh = new EliasFOV().calculateFOV(map, sx, sy, radius);
+
+            assertTrue(light[sx][sy] > 0);
+            for (int x = 0; x < 50; x++) {
+                for (int y = 0; y < 50; y++) {
+                    String where = sx + "," + sy + " -> " + x + "," + y;
+                    assertEquals(light[x][y], fresh[x][y], where);
+                    if (light[x][y] > 0) {
+                        assertTrue(BasicRadiusStrategy.CIRCLE.radius(sx, sy, x, y) < radius, where);
+                        assertTrue(new EliasLOS().isReachable(map, sx, sy, x, y), where);
+                    }
+                }
+            }
+        }
+    }
+}
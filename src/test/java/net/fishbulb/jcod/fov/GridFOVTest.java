@@ -0,0 +1,117 @@
+package net.fishbulb.jcod.fov;
+
+import org.testng.annotations.Test;
+
+import static net.fishbulb.jcod.fov.ShadowFOVTest.assertSameLight;
+import static net.fishbulb.jcod.fov.ShadowFOVTest.randomMap;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class GridFOVTest {
+
+    @Test
+    public void testGridLayout() throws Exception {
+        float[][] map = new float[3][2];
+        map[2][1] = 1f;
+        map[1][0] = 0.5f;
+        ResistanceGrid grid = ResistanceGrid.of(map);
+
+        // row-major
+        assertEquals(grid.getCells()[(1 * 3) + 2], 1f);
+        assertEquals(grid.getCells()[1], 0.5f);
+        assertTrue(grid.isOpaque(2, 1));
+        assertFalse(grid.isOpaque(1, 0));
+
+        float[][] out = new float[3][2];
+        grid.copyInto(out, 1, 0, 2, 1);
+        assertEquals(out[1][0], 0.5f);
+        assertEquals(out[2][1], 0f); // outside the copied rectangle
+        assertSameLight(grid.toArray(), map);
+    }
+
+    @Test
+    public void testGridMatchesArrays() throws Exception {
+        float[][] map = randomMap(30, 20, 3);
+        map[12][9] = 0;
+        ResistanceGrid resistance = ResistanceGrid.of(map);
+        LightGrid light = new LightGrid(30, 20);
+
+        GridFOVSolver[] solvers = {new ShadowFOV(), new SpreadFOV(), new RippleFOV(), new TranslucenceWrapperFOV()};
+        for (GridFOVSolver solver : solvers) {
+            for (BasicRadiusStrategy strategy : BasicRadiusStrategy.values()) {
+                float[][] expected = solver.calculateFOV(map, 12, 9, 1f, 0.1f, strategy);
+                assertSame(solver.calculateFOV(resistance, light, 12, 9, 1f, 0.1f, strategy), light);
+                assertSameLight(light.toArray(), expected);
+            }
+        }
+    }
+
+    @Test
+    public void testReusedSolversMatchFreshOnes() throws Exception {
+        // reused solvers only clear and copy the cells near each start, so moving around mustn't leave stale light
+        float[][] map = randomMap(40, 30, 5);
+        GridFOVSolver[] reused = {new SpreadFOV(), new RippleFOV(), new TranslucenceWrapperFOV(),
+                new TranslucenceWrapperFOV(new RippleFOV())};
+        GridFOVSolver[] fresh = new GridFOVSolver[reused.length];
+        LightGrid[] grids = new LightGrid[reused.length];
+        int[][] starts = {{5, 5}, {35, 25}, {20, 15}, {0, 29}, {21, 15}};
+        float[] radii = {4, 9, 15, 6, 30};
+        for (int i = 0; i < starts.length; i++) {
+            int x = starts[i][0];
+            int y = starts[i][1];
+            BasicRadiusStrategy strategy = BasicRadiusStrategy.values()[i % BasicRadiusStrategy.values().length];
+            fresh[0] = new SpreadFOV();
+            fresh[1] = new RippleFOV();
+            fresh[2] = new TranslucenceWrapperFOV();
+            fresh[3] = new TranslucenceWrapperFOV(new RippleFOV());
+            for (int s = 0; s < reused.length; s++) {
+                float[][] expected = fresh[s].calculateFOV(map, x, y, 1, 1 / radii[i], strategy);
+                assertSameLight(reused[s].calculateFOV(map, x, y, 1, 1 / radii[i], strategy), expected);
+                grids[s] = reused[s].calculateFOV(ResistanceGrid.of(map), grids[s], x, y, 1, 1 / radii[i], strategy);
+                assertSameLight(grids[s].toArray(), expected);
+            }
+        }
+    }
+
+    @Test
+    public void testPropagationIsStackSafe() throws Exception {
+        // a large open map used to recurse once per lit cell, so run on a thread with a small stack
+        final float[][] map = new float[300][300];
+        final Throwable[] failure = new Throwable[1];
+        final float[][][] results = new float[2][][];
+        Thread thread = new Thread(null, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    results[0] = new SpreadFOV().calculateFOV(map, 150, 150, 200);
+                    results[1] = new RippleFOV().calculateFOV(map, 150, 150, 200);
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            }
+        }, "small-stack", 256 * 1024);
+        thread.start();
+        thread.join();
+
+        assertEquals(failure[0], null);
+        for (float[][] light : results) {
+            assertTrue(light[0][150] > 0);
+            assertTrue(light[299][299] <= 0);
+        }
+    }
+
+    @Test
+    public void testGridLOS() throws Exception {
+        float[][] map = randomMap(30, 20, 4);
+        ResistanceGrid resistance = ResistanceGrid.of(map);
+        BresenhamLOS los = new BresenhamLOS();
+        for (int x = 0; x < 30; x++) {
+            for (int y = 0; y < 20; y++) {
+                assertEquals(los.isReachable(resistance, 5, 5, x, y, 1f, 0.05f, BasicRadiusStrategy.CIRCLE),
+                        los.isReachable(map, 5, 5, x, y, 1f, 0.05f, BasicRadiusStrategy.CIRCLE));
+            }
+        }
+    }
+}
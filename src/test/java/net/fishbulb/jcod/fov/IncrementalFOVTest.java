@@ -0,0 +1,64 @@
+package net.fishbulb.jcod.fov;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static net.fishbulb.jcod.fov.ShadowFOVTest.assertSameLight;
+import static net.fishbulb.jcod.fov.ShadowFOVTest.randomMap;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class IncrementalFOVTest {
+
+    @Test
+    public void testMatchesFullRecast() throws Exception {
+        float[][] map = randomMap(50, 40, 9);
+        ResistanceGrid grid = ResistanceGrid.of(map);
+        IncrementalFOV fov = new IncrementalFOV(grid);
+
+        Random rng = new Random(10);
+        for (int i = 0; i < 12; i++) {
+            fov.addViewer(rng.nextInt(50), rng.nextInt(40), 1f, 1f / (4 + rng.nextInt(12)),
+                    BasicRadiusStrategy.values()[i % 3]);
+        }
+        long fullCasts = fov.getOctantsCast();
+        assertEquals(fullCasts, 12 * 8);
+
+        for (int change = 0; change < 200; change++) {
+            int x = rng.nextInt(50), y = rng.nextInt(40);
+            fov.setResistance(x, y, grid.isOpaque(x, y) ? 0f : 1f);
+
+            if (change % 20 == 0) {
+                float[][] current = grid.toArray();
+                for (IncrementalFOV.Viewer v : fov.getViewers()) {
+                    float[][] expected = new ShadowFOV().calculateFOV(current, v.getX(), v.getY(), v.getForce(),
+                            v.getDecay(), v.getRadiusStrategy());
+                    assertSameLight(fov.copyInto(v, null).toArray(), expected);
+                }
+            }
+        }
+        // each change should only touch a few octants of a few viewers, far less than recasting everyone
+        assertTrue(fov.getOctantsCast() - fullCasts < 200 * 12 * 8 / 4);
+    }
+
+    @Test
+    public void testShadowedChangeIsFree() throws Exception {
+        float[][] map = new float[21][21];
+        for (int y = 0; y < 21; y++) map[12][y] = 1f; // a wall east of the viewer
+        ResistanceGrid grid = ResistanceGrid.of(map);
+        IncrementalFOV fov = new IncrementalFOV(grid);
+        IncrementalFOV.Viewer v = fov.addViewer(10, 10, 8);
+
+        // behind the wall, never read by any octant
+        assertEquals(fov.setResistance(15, 10, 1f), 0);
+        // in plain view, read by exactly one octant
+        assertEquals(fov.setResistance(8, 7, 1f), 1);
+        assertEquals(fov.isVisible(v, 8, 7), true);
+        assertEquals(fov.isVisible(v, 15, 10), false);
+        assertSameLight(fov.copyInto(v, null).toArray(), new ShadowFOV().calculateFOV(grid.toArray(), 10, 10, 8));
+
+        fov.moveViewer(v, 14, 10);
+        assertSameLight(fov.copyInto(v, null).toArray(), new ShadowFOV().calculateFOV(grid.toArray(), 14, 10, 8));
+    }
+}
@@ -0,0 +1,76 @@
+package net.fishbulb.jcod.fov;
+
+import org.testng.annotations.Test;
+
+import static net.fishbulb.jcod.fov.ShadowFOVTest.randomMap;
+import static org.testng.Assert.assertEquals;
+
+public class LightingTest {
+
+    // what the lighting should hold: every light cast from scratch and added up in order
+    private static void assertMatchesFromScratch(Lighting lighting, ResistanceGrid map) {
+        int w = map.getWidth();
+        int h = map.getHeight();
+        float[] red = new float[w * h];
+        float[] green = new float[w * h];
+        float[] blue = new float[w * h];
+        for (Lighting.Light light : lighting.getLights()) {
+            LightGrid fov = new ShadowFOV().calculateFOV(map, null, light.getX(), light.getY(), 1, 1 / light.getRadius(),
+                    light.getRadiusStrategy());
+            for (int i = 0; i < w * h; i++) {
+                float bright = fov.getCells()[i];
+                if (bright <= 0) continue;
+                red[i] += bright * (light.getRed() * light.getIntensity());
+                green[i] += bright * (light.getGreen() * light.getIntensity());
+                blue[i] += bright * (light.getBlue() * light.getIntensity());
+            }
+        }
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = (y * w) + x;
+                assertEquals(lighting.getRed(x, y), red[i], "red at " + x + "," + y);
+                assertEquals(lighting.getGreen(x, y), green[i], "green at " + x + "," + y);
+                assertEquals(lighting.getBlue(x, y), blue[i], "blue at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyChangedLightsAreCast() throws Exception {
+        ResistanceGrid map = ResistanceGrid.of(randomMap(80, 60, 8));
+        Lighting lighting = new Lighting(map);
+        Lighting.Light a = lighting.addLight(10, 10, 6, 1, 0.5f, 0.2f);
+        Lighting.Light b = lighting.addLight(14, 12, 8, 0.2f, 0.2f, 1);
+        Lighting.Light c = lighting.addLight(60, 45, 5, BasicRadiusStrategy.DIAMOND, 1, 1, 1);
+        lighting.update();
+        assertEquals(lighting.getLightsCast(), 3);
+        assertMatchesFromScratch(lighting, map);
+
+        // flickering by intensity doesn't cast anything
+        a.setIntensity(0.7f);
+        lighting.update();
+        assertEquals(lighting.getLightsCast(), 3);
+        assertMatchesFromScratch(lighting, map);
+
+        // a wall going up next to c only recasts c
+        map.set(61, 45, 1);
+        lighting.markChanged(61, 45);
+        lighting.update();
+        assertEquals(lighting.getLightsCast(), 4);
+        assertMatchesFromScratch(lighting, map);
+
+        b.moveTo(30, 20);
+        lighting.removeLight(c);
+        lighting.update();
+        assertEquals(lighting.getLightsCast(), 5);
+        assertMatchesFromScratch(lighting, map);
+
+        // a removed light can still be changed, but is never cast or added up again
+        c.moveTo(40, 30);
+        c.setColor(0, 1, 0);
+        c.setIntensity(2);
+        lighting.update();
+        assertEquals(lighting.getLightsCast(), 5);
+        assertMatchesFromScratch(lighting, map);
+    }
+}
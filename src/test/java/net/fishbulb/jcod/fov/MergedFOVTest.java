@@ -0,0 +1,97 @@
+package net.fishbulb.jcod.fov;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static net.fishbulb.jcod.fov.MergedFOV.MergeType;
+import static net.fishbulb.jcod.fov.ShadowFOVTest.assertSameLight;
+import static net.fishbulb.jcod.fov.ShadowFOVTest.randomMap;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class MergedFOVTest {
+
+    @Test
+    public void testMergeTypes() throws Exception {
+        float[][] map = randomMap(50, 40, 6);
+        float[][] near = new ShadowFOV().calculateFOV(map, 25, 20, 1, 1 / 5f, BasicRadiusStrategy.CIRCLE);
+        float[][] far = new ShadowFOV().calculateFOV(map, 25, 20, 1, 1 / 10f, BasicRadiusStrategy.CIRCLE);
+
+        float[][] max = new MergedFOV(MergeType.MAXIMUM).add(new ShadowFOV(), 1).add(new ShadowFOV(), 1, 2)
+                .calculateFOV(map, 25, 20, 5);
+        float[][] min = new MergedFOV(MergeType.MINIMUM).add(new ShadowFOV(), 1).add(new ShadowFOV(), 1, 2)
+                .calculateFOV(map, 25, 20, 5);
+        float[][] avg = new MergedFOV(MergeType.WEIGHTED_AVERAGE).add(new ShadowFOV(), 1).add(new ShadowFOV(), 3, 2)
+                .calculateFOV(map, 25, 20, 5);
+        float[][] and = new MergedFOV(MergeType.AND).add(new ShadowFOV(), 1).add(new ShadowFOV(), 3, 2)
+                .calculateFOV(map, 25, 20, 5);
+
+        for (int x = 0; x < map.length; x++) {
+            for (int y = 0; y < map[0].length; y++) {
+                assertEquals(max[x][y], Math.max(near[x][y], far[x][y]));
+                assertEquals(min[x][y], Math.min(near[x][y], far[x][y]));
+                float average = ((near[x][y] * 1) + (far[x][y] * 3)) / 4;
+                assertEquals(avg[x][y], average);
+                assertEquals(and[x][y], ((near[x][y] <= 0) || (far[x][y] <= 0)) ? 0 : average);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        float[][] map = randomMap(64, 64, 7);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MergedFOV parallel = new MergedFOV(MergeType.WEIGHTED_AVERAGE, executor)
+                    .add(new ShadowFOV(), 2).add(new SpreadFOV(), 1, 1.5f).add(new RippleFOV(), 1);
+            MergedFOV sequential = new MergedFOV(MergeType.WEIGHTED_AVERAGE)
+                    .add(new ShadowFOV(), 2).add(new SpreadFOV(), 1, 1.5f).add(new RippleFOV(), 1);
+            assertSameLight(parallel.calculateFOV(map, 30, 30, 12), sequential.calculateFOV(map, 30, 30, 12));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRejectsZeroWeight() {
+        new MergedFOV(MergeType.WEIGHTED_AVERAGE).add(new ShadowFOV(), 0);
+    }
+
+    @Test
+    public void testFailureWaitsForOtherChildren() throws Exception {
+        float[][] map = randomMap(20, 20, 8);
+        final AtomicBoolean finished = new AtomicBoolean();
+        FOVSolver failing = new ShadowFOV() {
+            @Override
+            public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+                throw new IllegalStateException("failed");
+            }
+        };
+        FOVSolver slow = new ShadowFOV() {
+            @Override
+            public float[][] calculateFOV(float[][] resistanceMap, int startx, int starty, float force, float decay, RadiusStrategy radiusStrategy) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.set(true);
+                return super.calculateFOV(resistanceMap, startx, starty, force, decay, radiusStrategy);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            new MergedFOV(MergeType.MAXIMUM, executor).add(failing, 1).add(slow, 1).calculateFOV(map, 10, 10, 5);
+            fail("expected the first child's exception");
+        } catch (IllegalStateException e) {
+            assertTrue(finished.get(), "the other child was still running");
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
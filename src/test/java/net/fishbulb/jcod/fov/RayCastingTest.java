@@ -0,0 +1,61 @@
+package net.fishbulb.jcod.fov;
+
+import net.fishbulb.jcod.util.PlotAlgorithms;
+import net.fishbulb.jcod.util.PlotFunction;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class RayCastingTest {
+
+    @Test
+    public void testTraversalVisitsCrossedCells() throws Exception {
+        final List<String> cells = new ArrayList<>();
+        PlotFunction record = new PlotFunction() {
+            @Override
+            public boolean apply(int x, int y, float val) {
+                cells.add(x + "," + y);
+                return true;
+            }
+        };
+
+        // crosses x = 1, then the corner at (2, 1) exactly, so (2, 0) and (1, 1) are only touched
+        PlotAlgorithms.DDA.apply(0, 0, 3, 1, record);
+        assertEquals(cells.toString(), "[0,0, 1,0, 2,1, 3,1]");
+
+        cells.clear();
+        PlotAlgorithms.DDA.apply(2, 3, 0, 2, record);
+        assertEquals(cells.toString(), "[2,3, 1,3, 1,2, 0,2]");
+    }
+
+    @Test
+    public void testLosChecksEveryCrossedCell() throws Exception {
+        float[][] map = new float[5][5];
+        map[1][0] = 1;
+        // Bresenham steps from 0,0 to 1,1 and misses the wall the line crosses
+        assertTrue(new BresenhamLOS().isReachable(map, 0, 0, 2, 1));
+        assertFalse(new RayCastingLOS().isReachable(map, 0, 0, 2, 1));
+        assertTrue(new RayCastingLOS().isReachable(map, 0, 0, 2, 4));
+        assertFalse(new RayCastingLOS().isReachable(map, 0, 0, 2, 1, 1, 0, BasicRadiusStrategy.CIRCLE));
+    }
+
+    @Test
+    public void testOpenFovMatchesRadius() throws Exception {
+        // no walls at the edges, which used to run rays off the map
+        float[][] map = new float[30][25];
+        map[12][10] = 1;
+        float[][] light = new RayCastingFOV().calculateFOV(map, 10, 10, 8);
+        for (int x = 0; x < map.length; x++) {
+            for (int y = 0; y < map[0].length; y++) {
+                boolean inRadius = BasicRadiusStrategy.CIRCLE.radius(10, 10, x, y) < 8;
+                boolean shadowed = (y == 10) && (x > 12);
+                assertEquals(light[x][y] > 0, inRadius && !shadowed, "at " + x + "," + y);
+            }
+        }
+    }
+}
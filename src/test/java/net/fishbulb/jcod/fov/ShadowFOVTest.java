@@ -0,0 +1,128 @@
+package net.fishbulb.jcod.fov;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class ShadowFOVTest {
+
+    static float[][] randomMap(int width, int height, long seed) {
+        Random rng = new Random(seed);
+        float[][] map = new float[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (rng.nextFloat() < 0.2f) map[x][y] = 1f;
+            }
+        }
+        return map;
+    }
+
+    static void assertSameLight(float[][] actual, float[][] expected) {
+        for (int x = 0; x < expected.length; x++) {
+            for (int y = 0; y < expected[0].length; y++) {
+                assertEquals(actual[x][y], expected[x][y], "at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    public void testReusedLightMap() throws Exception {
+        float[][] map = randomMap(40, 30, 1);
+        ShadowFOV reusing = new ShadowFOV();
+        float[][] light = new float[40][30];
+
+        // walk the origin around, including the edges, so stale light from the previous call would show up
+        int[][] origins = {{20, 15}, {3, 4}, {39, 29}, {0, 15}, {21, 16}};
+        float[] radii = {8, 5, 12, 3, 20};
+        for (int i = 0; i < origins.length; i++) {
+            int x = origins[i][0], y = origins[i][1];
+            map[x][y] = 0;
+            float[][] result = reusing.calculateFOV(map, light, x, y, radii[i]);
+            assertSame(result, light);
+            assertSameLight(light, new ShadowFOV().calculateFOV(map, x, y, radii[i]));
+        }
+    }
+
+    @Test
+    public void testForeignLightMapIsCleared() throws Exception {
+        float[][] map = randomMap(20, 20, 2);
+        map[10][10] = 0;
+        float[][] light = new float[20][20];
+        for (float[] column : light) Arrays.fill(column, 0.5f);
+
+        new ShadowFOV().calculateFOV(map, light, 10, 10, 4);
+        assertSameLight(light, new ShadowFOV().calculateFOV(map, 10, 10, 4));
+    }
+
+    @Test
+    public void testPackedMatchesFloat() throws Exception {
+        // wider than a word, so rows span several longs
+        float[][] map = randomMap(150, 70, 5);
+        BitGrid opaque = BitGrid.opaque(map);
+        BitGrid visible = new BitGrid(150, 70);
+        ShadowFOV packed = new ShadowFOV();
+
+        int[][] origins = {{75, 35}, {63, 10}, {64, 69}, {149, 0}, {2, 40}};
+        for (int[] origin : origins) {
+            int x = origin[0], y = origin[1];
+            for (BasicRadiusStrategy strategy : BasicRadiusStrategy.values()) {
+                packed.calculateFOV(opaque, visible, x, y, 1f, 1f / 30, strategy);
+                float[][] light = new ShadowFOV().calculateFOV(map, x, y, 1f, 1f / 30, strategy);
+                for (int cx = 0; cx < 150; cx++) {
+                    for (int cy = 0; cy < 70; cy++) {
+                        assertEquals(visible.get(cx, cy), light[cx][cy] > 0, "at " + cx + "," + cy);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTranslatorBooleans() throws Exception {
+        float[][] map = randomMap(100, 40, 6);
+        boolean[][] walls = BitGrid.opaque(map).toArray();
+        FOVTranslator translator = new FOVTranslator(new ShadowFOV());
+
+        for (int i = 0; i < 3; i++) {
+            int x = 20 + (i * 30), y = 20;
+            boolean[][] lit = translator.calculateFOV(walls, x, y, 12);
+            float[][] light = new ShadowFOV().calculateFOV(map, x, y, 12);
+            for (int cx = 0; cx < 100; cx++) {
+                for (int cy = 0; cy < 40; cy++) {
+                    assertEquals(lit[cx][cy], light[cx][cy] > 0, "at " + cx + "," + cy);
+                    assertEquals(translator.isLit(cx, cy), lit[cx][cy]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBitGridClearRect() throws Exception {
+        BitGrid grid = new BitGrid(200, 3);
+        for (int x = 0; x < 200; x++) {
+            for (int y = 0; y < 3; y++) grid.set(x, y);
+        }
+        grid.clear(60, 1, 80, 1);
+        for (int x = 0; x < 200; x++) {
+            assertEquals(grid.get(x, 1), (x < 60) || (x >= 140), "at " + x);
+        }
+        assertEquals(grid.count(), 600 - 80);
+    }
+
+    @Test(timeOut = 5000)
+    public void testUnboundedRadius() throws Exception {
+        // a decay of 0 means an infinite radius, and the scan has to stop at the edge of the map
+        float[][] light = new ShadowFOV().calculateFOV(new float[30][20], 3, 4, 1, 0, BasicRadiusStrategy.CIRCLE);
+        assertEquals(light[0][0], 1f);
+        assertEquals(light[29][19], 1f);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMismatchedLightMap() throws Exception {
+        new ShadowFOV().calculateFOV(new float[10][10], new float[10][9], 5, 5, 3);
+    }
+}
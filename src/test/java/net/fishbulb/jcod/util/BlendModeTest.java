@@ -0,0 +1,75 @@
+package net.fishbulb.jcod.util;
+
+import com.badlogic.gdx.graphics.Color;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888;
+import static net.fishbulb.jcod.util.ColorUtils.rgba8888ToColor;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class BlendModeTest {
+
+    // corner values hit the divisions and clamps
+    private static int component(Random rng) {
+        switch (rng.nextInt(6)) {
+            case 0: return 0;
+            case 1: return 255;
+            case 2: return 127 + rng.nextInt(2);
+            default: return rng.nextInt(256);
+        }
+    }
+
+    private static int color(Random rng) {
+        return BlendMode.pack(component(rng), component(rng), component(rng), component(rng));
+    }
+
+    @Test
+    public void testPackedMatchesColor() throws Exception {
+        Random rng = new Random(22);
+        Color source = new Color();
+        Color dest = new Color();
+        Color output = new Color();
+        for (BlendMode mode : BlendMode.values()) {
+            for (int i = 0; i < 20000; i++) {
+                int s = color(rng);
+                int d = color(rng);
+                mode.blend(rgba8888ToColor(s, source), rgba8888ToColor(d, dest), output);
+                int expected = rgba8888(output);
+                int actual = mode.blend(s, d);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int diff = ((expected >>> shift) & 0xff) - ((actual >>> shift) & 0xff);
+                    assertTrue(Math.abs(diff) <= 1, String.format("%s %08x onto %08x: %08x, expected %08x",
+                            mode, s, d, actual, expected));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRegions() throws Exception {
+        Random rng = new Random(23);
+        int[] source = new int[40];
+        int[] dest = new int[40];
+        for (BlendMode mode : BlendMode.values()) {
+            for (int i = 0; i < 40; i++) {
+                source[i] = color(rng);
+                dest[i] = color(rng);
+            }
+            int[] spans = dest.clone();
+            mode.blendRegion(source, 5, spans, 10, 20);
+            int tint = color(rng);
+            int[] tinted = dest.clone();
+            mode.blendRegion(tint, tinted, 3, 30);
+
+            for (int i = 0; i < 40; i++) {
+                int span = ((i >= 10) && (i < 30)) ? mode.blend(source[i - 5], dest[i]) : dest[i];
+                assertEquals(spans[i], span, mode + " span " + i);
+                int tone = ((i >= 3) && (i < 33)) ? mode.blend(tint, dest[i]) : dest[i];
+                assertEquals(tinted[i], tone, mode + " tint " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package net.fishbulb.jcod.util;
+
+import org.testng.annotations.Test;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class EliasTest {
+
+    private static List<Point> streamed(int sx, int sy, int ex, int ey) {
+        final List<Point> points = new ArrayList<>();
+        final int maxx = Math.max(sx, ex);
+        final int maxy = Math.max(sy, ey);
+        Elias.line(sx, sy, ex, ey, new PlotFunction() {
+            @Override public boolean apply(int x, int y, float val) {
+                // the same filter the list version applies
+                if ((x >= 0) && (y >= 0) && (x <= maxx) && (y <= maxy)) points.add(new Point(x, y));
+                return true;
+            }
+        });
+        return points;
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testStreamingMatchesList() {
+        Random rng = new Random(19);
+        for (int i = 0; i < 500; i++) {
+            int sx = rng.nextInt(30), sy = rng.nextInt(30), ex = rng.nextInt(30), ey = rng.nextInt(30);
+            if ((sx == ex) && (sy == ey)) continue;
+            assertEquals(streamed(sx, sy, ex, ey), Elias.line(sx, sy, ex, ey), sx + "," + sy + " -> " + ex + "," + ey);
+        }
+    }
+
+    @Test
+    public void testStopsWhenPlotReturnsFalse() {
+        final int[] calls = {0};
+        Elias.line(0, 0, 20, 7, new PlotFunction() {
+            @Override public boolean apply(int x, int y, float val) {
+                return ++calls[0] < 3;
+            }
+        });
+        assertEquals(calls[0], 3);
+    }
+
+    @Test
+    public void testDegenerateLine() {
+        List<Point> points = streamed(4, 5, 4, 5);
+        assertEquals(points.size(), 1);
+        assertEquals(points.get(0), new Point(4, 5));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testConcurrentLines() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final long seed = t;
+                results.add(pool.submit(new Callable<Boolean>() {
+                    @Override public Boolean call() {
+                        Random rng = new Random(seed);
+                        for (int i = 0; i < 2000; i++) {
+                            int sx = rng.nextInt(40), sy = rng.nextInt(40), ex = rng.nextInt(40), ey = rng.nextInt(40);
+                            if ((sx == ex) && (sy == ey)) continue;
+                            if (!streamed(sx, sy, ex, ey).equals(Elias.line(sx, sy, ex, ey))) return false;
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package net.fishbulb.jcod.world;
+
+import com.badlogic.gdx.graphics.Color;
+import net.fishbulb.jcod.Console;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class WorldLayerTest {
+
+    private static void scatter(WorldLayer world, Random rng, int count) {
+        int[] palette = {0x000000ff, 0xff0000ff, 0x00ff00ff, 0x336699ff};
+        for (int i = 0; i < count; i++) {
+            world.put(rng.nextInt(world.getWidth()), rng.nextInt(world.getHeight()), (char) ('a' + rng.nextInt(3)),
+                    palette[rng.nextInt(4)], palette[rng.nextInt(4)]);
+        }
+    }
+
+    private static void assertShows(Viewport view, String where) {
+        WorldLayer world = view.getWorld();
+        Console con = view.getConsole();
+        for (int y = 0; y < con.getHeight(); y++) {
+            for (int x = 0; x < con.getWidth(); x++) {
+                int wx = view.getLeft() + x;
+                int wy = view.getTop() + y;
+                String cell = where + " at " + wx + "," + wy;
+                assertEquals(con.getChar(x, y), world.getChar(wx, wy), cell);
+                assertEquals(con.getCharForegroundRGBA(x, y), world.getForeground(wx, wy), cell);
+                assertEquals(con.getCharBackgroundRGBA(x, y), world.getBackground(wx, wy), cell);
+            }
+        }
+    }
+
+    @Test
+    public void testSparseChunks() {
+        WorldLayer world = new WorldLayer(4096, 4096);
+        world.setDefaultChar('.');
+        assertEquals(world.getChar(1000, 2000), '.');
+        assertEquals(world.getBackground(1000, 2000), 0x000000ff);
+        assertEquals(world.getChunksLoaded(), 0);
+
+        world.put(1000, 2000, '@', Color.YELLOW, Color.BLUE);
+        world.setChar(4095, 4095, '#');
+        world.setChar(-1, 5, '#');
+        assertEquals(world.getChunksLoaded(), 2);
+        assertTrue(world.isAllocated(1023, 2000));
+        assertFalse(world.isAllocated(1024, 2000));
+        assertEquals(world.getChar(1000, 2000), '@');
+        assertEquals(world.getChar(1001, 2000), '.');
+        assertEquals(world.getChar(4095, 4095), '#');
+
+        // off the map reads as the defaults too
+        assertEquals(world.getChar(-1, 5), '.');
+        assertEquals(world.getForeground(4096, 0), world.getDefaultForeground());
+        assertEquals(world.getBackground(0, 4096), world.getDefaultBackground());
+    }
+
+    @Test
+    public void testEvictAndReload() throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "jcod-chunks-" + System.nanoTime());
+        WorldLayer world = new WorldLayer(300, 200, new FileChunkStore(dir));
+        scatter(world, new Random(7), 2000);
+
+        WorldLayer copy = new WorldLayer(300, 200);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 300; x++) {
+                copy.put(x, y, world.getChar(x, y), world.getForeground(x, y), world.getBackground(x, y));
+            }
+        }
+
+        int loaded = world.getChunksLoaded();
+        assertEquals(world.evictOutside(64, 64, 32, 32), loaded - 1);
+        assertEquals(world.getChunksLoaded(), 1);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 300; x++) {
+                assertEquals(world.getChar(x, y), copy.getChar(x, y));
+                assertEquals(world.getForeground(x, y), copy.getForeground(x, y));
+                assertEquals(world.getBackground(x, y), copy.getBackground(x, y));
+            }
+        }
+        assertEquals(world.getChunksLoaded(), loaded);
+
+        File[] files = dir.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void testScrolling() {
+        WorldLayer world = new WorldLayer(500, 400);
+        scatter(world, new Random(11), 20000);
+        Console con = new Console(60, 40);
+        Viewport view = new Viewport(world, con, 100, 100);
+        assertShows(view, "initial");
+
+        view.scrollBy(1, 0);
+        assertEquals(view.getCellsCopied(), 40);
+        assertShows(view, "right");
+        view.scrollBy(0, -1);
+        assertEquals(view.getCellsCopied(), 60);
+        assertShows(view, "up");
+        view.scrollBy(-3, 2);
+        assertEquals(view.getCellsCopied(), (3 * 40) + (2 * 57));
+        assertShows(view, "diagonal");
+
+        // off the edges of the world, and far enough to copy everything
+        view.scrollTo(-10, 380);
+        assertEquals(view.getCellsCopied(), 60 * 40);
+        assertShows(view, "edge");
+        view.scrollBy(5, -7);
+        assertShows(view, "edge scroll");
+
+        // keyed consoles still scroll every cell
+        con.setKeyColor(new Color(0x000000ff));
+        view.centerOn(250, 200);
+        view.scrollBy(-2, -2);
+        assertShows(view, "keyed");
+    }
+
+    @Test
+    public void testUpdate() {
+        WorldLayer world = new WorldLayer(500, 400);
+        Console con = new Console(60, 40);
+        Viewport view = new Viewport(world, con, 100, 100);
+
+        view.update();
+        assertEquals(view.getCellsCopied(), 0);
+
+        // only the part of the written chunk that's in view is copied
+        world.setChar(130, 110, '@');
+        world.setChar(400, 300, '#');
+        view.update();
+        assertEquals(view.getCellsCopied(), 32 * 28);
+        assertShows(view, "update");
+
+        world.setChar(101, 101, 'x');
+        view.scrollBy(0, 1);
+        assertShows(view, "scroll after write");
+    }
+}